@@ -6,6 +6,8 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -16,13 +18,18 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeBatchReport;
 import ru.yandex.practicum.filmorate.model.UserFeedEvent;
 import ru.yandex.practicum.filmorate.service.FilmDirectorsService;
 import ru.yandex.practicum.filmorate.service.FilmLikeService;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeBatchService;
 import ru.yandex.practicum.filmorate.service.UserFeedEventService;
 
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
@@ -37,13 +44,26 @@ public class FilmController {
     private final FilmLikeService filmLikeService;
     private final FilmDirectorsService filmDirectorsService;
     private final UserFeedEventService userFeedEventService;
+    private final LikeBatchService likeBatchService;
+    private final NdjsonWriter ndjsonWriter;
 
     @GetMapping
-    public Collection<Film> findAll() {
+    public ResponseEntity<Collection<Film>> findAll(@RequestParam(required = false) Integer limit,
+                                                    @RequestParam(required = false) String cursor) {
+        if (PageResponses.isRequested(limit, cursor)) {
+            log.info("Received GET request to fetch films page after cursor: {}, limit: {}", cursor, limit);
+            return PageResponses.of(filmService.findPage(cursor, PageResponses.limit(limit)));
+        }
         log.info("Received GET request to fetch all films");
         Collection<Film> films = filmService.findAll();
         log.info("Returning {} films", films.size());
-        return films;
+        return ResponseEntity.ok(films);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAll() {
+        log.info("Received GET request to stream all films as NDJSON");
+        return out -> filmService.streamAll(chunk -> ndjsonWriter.write(out, chunk));
     }
 
     @PostMapping
@@ -66,7 +86,11 @@ public class FilmController {
     @ResponseStatus(HttpStatus.OK)
     public void addLike(@PathVariable Integer id, @PathVariable Integer userId) {
         log.info("Received PUT request to add like for film ID: {} by user ID: {}", id, userId);
-        filmLikeService.addLike(userId, id);
+        // Событие в ленте появляется только при фактическом изменении
+        if (!filmLikeService.addLike(userId, id)) {
+            log.info("Like for film ID: {} by user ID: {} is unchanged", id, userId);
+            return;
+        }
         log.info("Like added successfully for film ID: {} by user ID: {}", id, userId);
         UserFeedEvent event = new UserFeedEvent(
                 0,
@@ -83,7 +107,11 @@ public class FilmController {
     @ResponseStatus(HttpStatus.OK)
     public void removeLike(@PathVariable Integer id, @PathVariable Integer userId) {
         log.info("Received DELETE request to remove like for film ID: {} by user ID: {}", id, userId);
-        filmLikeService.removeLike(userId, id);
+        // Событие в ленте появляется только при фактическом изменении
+        if (!filmLikeService.removeLike(userId, id)) {
+            log.info("Like for film ID: {} by user ID: {} is unchanged", id, userId);
+            return;
+        }
         log.info("Like removed successfully for film ID: {} by user ID: {}", id, userId);
         UserFeedEvent event = new UserFeedEvent(
                 0,
@@ -96,6 +124,17 @@ public class FilmController {
         userFeedEventService.addEvent(event);
     }
 
+    // Тело - JSON-массив или NDJSON объектов {userId, filmId, op}; читается потоком, не собираясь в память целиком
+    @PostMapping(path = "/likes:batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public LikeBatchReport addLikesBatch(InputStream body) {
+        log.info("Received POST request to apply a batch of likes");
+        LikeBatchReport report = likeBatchService.ingest(body);
+        log.info("Likes batch processed: {} received, {} applied, {} rejected",
+                report.getReceived(), report.getApplied(), report.getRejected());
+        return report;
+    }
+
     @GetMapping("/{id}")
     public Film getFilmById(@PathVariable Integer id) {
         log.info("Received GET request to fetch film by ID: {}", id);
@@ -106,28 +145,63 @@ public class FilmController {
 
     @GetMapping("/director/{directorId}")
     @ResponseStatus(HttpStatus.OK)
-    public List<Film> getDirectorSort(@PathVariable Integer directorId, @RequestParam @NonNull String sortBy) {
+    public ResponseEntity<Collection<Film>> getDirectorSort(@PathVariable Integer directorId,
+                                                            @RequestParam @NonNull String sortBy,
+                                                            @RequestParam(required = false) Integer limit,
+                                                            @RequestParam(required = false) String cursor) {
         log.info("Received GET request to fetch films by director ID: {} sorted by: {}", directorId, sortBy);
+        if (PageResponses.isRequested(limit, cursor)) {
+            return PageResponses.of(filmDirectorsService.getDirectorSortPage(directorId, sortBy, cursor,
+                    PageResponses.limit(limit)));
+        }
         List<Film> films = filmDirectorsService.getDirectorSort(directorId, sortBy);
         log.info("Returning {} films for director ID: {}", films.size(), directorId);
-        return films;
+        return ResponseEntity.ok(films);
     }
 
     @GetMapping("/search")
     @ResponseStatus(HttpStatus.OK)
-    public List<Film> getSearch(@RequestParam String query, @RequestParam @NonNull String by) {
-        log.info("Received GET request to search films by query: '{}' and filter: '{}'", query, by);
-        List<Film> films = filmService.getSearch(query, by);
+    public List<Film> getSearch(@RequestParam String query, @RequestParam @NonNull String by,
+                                @RequestParam(value = "fuzzy", defaultValue = "false") boolean fuzzy,
+                                @RequestParam(required = false) Integer after,
+                                @RequestParam(required = false) Integer limit) {
+        log.info("Received GET request to search films by query: '{}', filter: '{}', fuzzy: {}, after: {}, limit: {}",
+                query, by, fuzzy, after, limit);
+        List<Film> films = filmService.getSearch(query, by, fuzzy, after, limit);
         log.info("Returning {} search results for query: '{}'", films.size(), query);
         return films;
     }
 
+    @GetMapping("/search/suggest")
+    @ResponseStatus(HttpStatus.OK)
+    public List<Film> getSuggestions(@RequestParam String prefix,
+                                     @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        log.info("Received GET request to suggest films by prefix: '{}'", prefix);
+        List<Film> films = filmService.getSuggestions(prefix, limit);
+        log.info("Returning {} suggestions for prefix: '{}'", films.size(), prefix);
+        return films;
+    }
+
     @GetMapping("/popular")
     @ResponseStatus(HttpStatus.OK)
     public List<Film> getPopularFilms(
             @RequestParam(value = "count", defaultValue = "10") int count,
             @RequestParam(value = "genreId", required = false) Integer genreId,
-            @RequestParam(value = "year", required = false) Integer year) {
+            @RequestParam(value = "year", required = false) Integer year,
+            @RequestParam(value = "mode", required = false) String mode) {
+
+        if ("trending".equals(mode)) {
+            if (genreId != null || year != null) {
+                throw new IncorrectParameterException("Режим trending не поддерживает фильтры genreId и year");
+            }
+            log.info("Received GET request to fetch top {} trending films", count);
+            List<Film> trendingFilms = filmLikeService.getTrendingFilms(count);
+            log.info("Returning {} trending films", trendingFilms.size());
+            return trendingFilms;
+        }
+        if (mode != null && !"all".equals(mode)) {
+            throw new IncorrectParameterException("Неизвестный режим: " + mode);
+        }
 
         if (genreId == null && year == null) {
             log.info("Received GET request to fetch top {} popular films", count);
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.FilmImportReport;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
+
+import java.io.InputStream;
+
+// POST /films:import живёт вне FilmController: к префиксу /films любой путь метода добавляется через "/"
+@Slf4j
+@RestController
+@AllArgsConstructor
+public class FilmImportController {
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final FilmImportService filmImportService;
+
+    // По фильму в формате POST /films в каждой строке
+    @PostMapping(path = "/films:import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public FilmImportReport importNdjson(InputStream body) {
+        log.info("Received POST request to import films from NDJSON");
+        return filmImportService.importNdjson(body);
+    }
+
+    // Заголовок name,description,releaseDate,duration[,mpa][,genres][,directors]; жанры и режиссеры - id через |
+    @PostMapping(path = "/films:import", consumes = TEXT_CSV_VALUE)
+    public FilmImportReport importCsv(InputStream body) {
+        log.info("Received POST request to import films from CSV");
+        return filmImportService.importCsv(body);
+    }
+}
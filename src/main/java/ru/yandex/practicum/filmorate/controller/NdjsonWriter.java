@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+// Запись пачки объектов в ответ в формате NDJSON: по одному JSON-документу в строке.
+// После каждой пачки поток сбрасывается, так что клиент получает данные по мере чтения из базы,
+// а сервер не держит в памяти больше одной пачки
+@Component
+@RequiredArgsConstructor
+public class NdjsonWriter {
+    private static final byte NEW_LINE = '\n';
+
+    private final ObjectMapper objectMapper;
+
+    public void write(OutputStream out, List<?> chunk) {
+        try {
+            for (Object item : chunk) {
+                out.write(objectMapper.writeValueAsBytes(item));
+                out.write(NEW_LINE);
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Клиент закрыл соединение: исключение прерывает чтение курсора
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.util.Collection;
+
+// Курсорная пагинация списков: включается параметром limit или cursor, без них списки отдаются целиком, как раньше.
+// Тело ответа - по-прежнему массив элементов, курсор следующей страницы передаётся в заголовке X-Next-Cursor
+final class PageResponses {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_LIMIT = 100;
+
+    private PageResponses() {
+    }
+
+    static boolean isRequested(Integer limit, String cursor) {
+        return limit != null || cursor != null;
+    }
+
+    static int limit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit <= 0) {
+            throw new IncorrectParameterException("Размер страницы должен быть положительным");
+        }
+        return limit;
+    }
+
+    static <T> ResponseEntity<Collection<T>> of(Page<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+}
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.UserFeedEvent;
@@ -10,7 +11,7 @@ import ru.yandex.practicum.filmorate.service.ReviewService;
 import ru.yandex.practicum.filmorate.service.UserFeedEventService;
 
 import java.time.Instant;
-import java.util.List;
+import java.util.Collection;
 
 @Slf4j
 @RestController
@@ -77,10 +78,16 @@ public class ReviewController {
     }
 
     @GetMapping
-    public List<Review> getReviews(@RequestParam(required = false) Integer filmId,
-                                   @RequestParam(defaultValue = "10") int count) {
+    public ResponseEntity<Collection<Review>> getReviews(@RequestParam(required = false) Integer filmId,
+                                                         @RequestParam(defaultValue = "10") int count,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         @RequestParam(required = false) String cursor) {
+        if (PageResponses.isRequested(limit, cursor)) {
+            log.info("GET /reviews - Fetching reviews page with filmId: {}, cursor: {}, limit: {}", filmId, cursor, limit);
+            return PageResponses.of(reviewService.getReviewsPage(filmId, cursor, PageResponses.limit(limit)));
+        }
         log.info("GET /reviews - Fetching reviews with filmId: {}, count: {}", filmId, count);
-        return reviewService.getReviews(filmId, count);
+        return ResponseEntity.ok(reviewService.getReviews(filmId, count));
     }
 
     @PutMapping("/{id}/like/{userId}")
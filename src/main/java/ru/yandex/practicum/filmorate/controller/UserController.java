@@ -5,7 +5,11 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.CacheStats;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.UserFeedEvent;
@@ -28,10 +32,21 @@ public class UserController {
     UserService userService;
     private final FilmRecommendationService recommendationService;
     private final UserFeedEventService userFeedEventService;
+    private final NdjsonWriter ndjsonWriter;
 
     @GetMapping
-    public Collection<User> findAll() {
-        return userService.findAll();
+    public ResponseEntity<Collection<User>> findAll(@RequestParam(required = false) Integer limit,
+                                                    @RequestParam(required = false) String cursor) {
+        if (PageResponses.isRequested(limit, cursor)) {
+            return PageResponses.of(userService.findPage(cursor, PageResponses.limit(limit)));
+        }
+        return ResponseEntity.ok(userService.findAll());
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAll() {
+        log.info("Received GET request to stream all users as NDJSON");
+        return out -> userService.streamAll(chunk -> ndjsonWriter.write(out, chunk));
     }
 
     @PostMapping
@@ -76,8 +91,13 @@ public class UserController {
 
     @GetMapping("/{id}/friends")
     @ResponseStatus(HttpStatus.OK)
-    public List<User> getFriends(@PathVariable Integer id) {
-        return userService.checkFriends(id);
+    public ResponseEntity<Collection<User>> getFriends(@PathVariable Integer id,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       @RequestParam(required = false) String cursor) {
+        if (PageResponses.isRequested(limit, cursor)) {
+            return PageResponses.of(userService.getFriendsPage(id, cursor, PageResponses.limit(limit)));
+        }
+        return ResponseEntity.ok(userService.checkFriends(id));
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
@@ -87,8 +107,14 @@ public class UserController {
     }
 
     @GetMapping("/{id}/recommendations")
-    public List<Film> getRecommendations(@PathVariable Integer id) {
-        return recommendationService.getRecommendations(id);
+    public List<Film> getRecommendations(@PathVariable Integer id,
+                                         @RequestParam(value = "limit", required = false) Integer limit) {
+        return recommendationService.getRecommendations(id, limit);
+    }
+
+    @GetMapping("/recommendations/cache")
+    public CacheStats getRecommendationCacheStats() {
+        return recommendationService.getCacheStats();
     }
 
     @DeleteMapping("/{id}")
@@ -103,7 +129,12 @@ public class UserController {
 
     @GetMapping("/{id}/feed")
     @ResponseStatus(HttpStatus.OK)
-    public List<UserFeedEvent> getUserFeed(@PathVariable int id) {
-        return userFeedEventService.getUserFeed(id);
+    public ResponseEntity<Collection<UserFeedEvent>> getUserFeed(@PathVariable int id,
+                                                                 @RequestParam(required = false) Integer limit,
+                                                                 @RequestParam(required = false) String cursor) {
+        if (PageResponses.isRequested(limit, cursor)) {
+            return PageResponses.of(userFeedEventService.getUserFeedPage(id, cursor, PageResponses.limit(limit)));
+        }
+        return ResponseEntity.ok(userFeedEventService.getUserFeed(id));
     }
 }
\ No newline at end of file
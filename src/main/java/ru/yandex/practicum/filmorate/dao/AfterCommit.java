@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Изменение резидентных индексов вслед за записью в базу. Внутри транзакции действие откладывается
+// до её фиксации, чтобы откат не оставлял в индексах строк, которых нет в базе; вне транзакции выполняется сразу
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
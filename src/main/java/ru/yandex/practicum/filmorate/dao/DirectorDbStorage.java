@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.dao;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -11,6 +12,7 @@ import ru.yandex.practicum.filmorate.dao.mappers.DirectorRowMapper;
 import ru.yandex.practicum.filmorate.exceptions.DirectorsException;
 import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.index.DirectorChangedEvent;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.storage.DirectorStorage;
 
@@ -24,6 +26,7 @@ import java.util.Objects;
 public class DirectorDbStorage implements DirectorStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher events;
 
     @Override
     public List<Director> findAll() {
@@ -68,6 +71,7 @@ public class DirectorDbStorage implements DirectorStorage {
             throw new DirectorsException("ошибка сохранения режиссера " + e);
         }
         log.debug("Режиссер успешно создан");
+        events.publishEvent(new DirectorChangedEvent(director.getId(), director));
         return director;
     }
 
@@ -80,6 +84,7 @@ public class DirectorDbStorage implements DirectorStorage {
                     director.getName(), director.getId());
 
             log.debug("Режиссер успешно изменен");
+            events.publishEvent(new DirectorChangedEvent(director.getId(), director));
             return director;
         } catch (DirectorsException e) {
             throw new DirectorsException("Ошибка при изменении режиссера: " + e);
@@ -95,6 +100,7 @@ public class DirectorDbStorage implements DirectorStorage {
                     id);
 
             log.debug("Режиссер успешно удален");
+            events.publishEvent(new DirectorChangedEvent(id, null));
         } catch (DirectorsException e) {
             throw new DirectorsException("Ошибка при удалении режиссера: " + e);
         }
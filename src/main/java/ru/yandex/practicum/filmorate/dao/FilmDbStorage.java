@@ -3,30 +3,34 @@ package ru.yandex.practicum.filmorate.dao;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
-import ru.yandex.practicum.filmorate.dao.mappers.DirectorRowMapper;
-import ru.yandex.practicum.filmorate.dao.mappers.GenreRowMapper;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.*;
+import ru.yandex.practicum.filmorate.index.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MPARating;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -34,6 +38,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -41,18 +47,32 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 @Qualifier("filmDbStorage")
 public class FilmDbStorage implements FilmStorage {
-    private JdbcTemplate jdbc;
+    // Размер пачки при потоковой выгрузке: столько строк запрашивается у курсора за раз
+    // и столько фильмов догружается одним запросом к каждой связанной таблице
+    private static final int STREAM_CHUNK_SIZE = 500;
+    public static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
 
+    private JdbcTemplate jdbc;
+    private LikeIndex likeIndex;
+    private FilmHydrator filmHydrator;
+    private ApplicationEventPublisher events;
+    private FilmSearchIndex searchIndex;
+    private ReferenceDataCache referenceCache;
+
+    // Запись фильма и его связей идёт одной транзакцией: справочники проверяются по кэшу до первого запроса,
+    // а жанры и режиссеры вставляются одним многострочным INSERT на таблицу
     @Override
+    @Transactional
     public Film create(Film film) {
+        // Ссылки на справочники проверяются по кэшу до записи: фильм с неверным жанром не сохраняется частично
+        resolveReferences(film);
         String sql = "INSERT INTO films (name, description, RELEASE_DATE, duration, mpa) VALUES (?, ?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
         jdbc.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
             ps.setString(1, film.getName());
             ps.setString(2, film.getDescription());
-            LocalDate minReleaseDate = LocalDate.of(1895, 12, 28);
-            if (film.getReleaseDate().isBefore(minReleaseDate)) {
+            if (film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
                 throw new ReleaseDateException("Ошибка при создании фильма, связанная с датой");
             }
             ps.setDate(3, Date.valueOf(film.getReleaseDate()));
@@ -60,7 +80,6 @@ public class FilmDbStorage implements FilmStorage {
             if (film.getMpa() == null) {
                 ps.setObject(5, null);
             } else {
-                validateMpaRating(film.getMpa());
                 ps.setInt(5, film.getMpa().getId());
             }
             return ps;
@@ -68,84 +87,37 @@ public class FilmDbStorage implements FilmStorage {
         if (keyHolder.getKey() != null) {
             film.setId(keyHolder.getKey().intValue());
         }
-        if (film.getMpa() != null) {
-            film.setMpa(getMpaRatingById(film.getMpa().getId()));
-        }
-        addGenreToFilm(film);
-
-        if (film.getDirectors() != null) {
-            addDirectorToFilm(film);
-        }
+        insertLinks(film);
+        AfterCommit.run(() -> events.publishEvent(new FilmChangedEvent(film.getId(), film)));
         return film;
     }
 
     @Override
+    @Transactional
     public Film update(Film film) {
-        if (!filmExists(film.getId())) {
-            throw new NotFoundException("Фильм с id " + film.getId() + " не найден");
-        }
         String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa = ? WHERE id = ?";
-        try {
-            // Проверка рейтинга MPA
-            if (film.getMpa() != null) {
-                validateMpaRating(film.getMpa());
-            }
-
-            // Обновление основных данных фильма
-            jdbc.update(sql,
-                    film.getName(),
-                    film.getDescription(),
-                    film.getReleaseDate(),
-                    film.getDuration(),
-                    film.getMpa() != null ? film.getMpa().getId() : null,
-                    film.getId());
-
-            // Обновляем объект MPA в фильме
-            if (film.getMpa() != null) {
-                film.setMpa(getMpaRatingById(film.getMpa().getId()));
-            }
-
-            // Удаляем существующие жанры для фильма
-            clearGenresFromFilm(film.getId());
-
-            // Сортируем жанры по ID перед добавлением
-            if (film.getGenres() != null) {
-                log.info("Сортировка жанров для фильма ID {}", film.getId());
-                Set<Genre> sortedGenres = film.getGenres()
-                        .stream()
-                        .sorted(Comparator.comparingInt(Genre::getId))
-                        .collect(Collectors.toCollection(LinkedHashSet::new));
-                film.setGenres(sortedGenres);
-            }
-
-            // Добавляем новые жанры
-            addGenreToFilm(film);
-            // Обновляем режиссеров
-            if (film.getDirectors() != null && !film.getDirectors().isEmpty()) {
-                addDirectorToFilm(film);
-            } else {
-                clearDirectorsByIdFilm(film.getId());
-            }
-
-            return film;
-        } catch (UpdateFilmsException e) {
-            log.error("Ошибка при обновлении фильма " + film.getId() + ": " + e.getMessage());
-            throw e;
+        // Проверка рейтинга MPA, жанров и режиссеров по кэшу справочников, жанры сортируются по ID
+        resolveReferences(film);
+
+        // Обновление основных данных фильма; отсутствие фильма видно по числу изменённых строк
+        int updated = jdbc.update(sql,
+                film.getName(),
+                film.getDescription(),
+                film.getReleaseDate(),
+                film.getDuration(),
+                film.getMpa() != null ? film.getMpa().getId() : null,
+                film.getId());
+        if (updated == 0) {
+            throw new NotFoundException("Фильм с id " + film.getId() + " не найден");
         }
-    }
 
-    // Метод для очистки режиссеров у фильма
-    private void clearDirectorsByIdFilm(Integer filmId) {
-        String sql = "DELETE FROM film_directors WHERE film_id = ?";
-        jdbc.update(sql, filmId);
-        log.info("Режиссеры для фильма с id {} успешно удалены", filmId);
-    }
+        // Жанры и режиссеры заменяются целиком
+        jdbc.update("DELETE FROM film_genres WHERE film_id = ?", film.getId());
+        jdbc.update("DELETE FROM film_directors WHERE film_id = ?", film.getId());
+        insertLinks(film);
 
-    // Метод для очистки жанров у фильма
-    private void clearGenresFromFilm(Integer filmId) {
-        String sql = "DELETE FROM film_genres WHERE film_id = ?";
-        jdbc.update(sql, filmId);
-        log.info("Жанры для фильма с id {} успешно удалены", filmId);
+        AfterCommit.run(() -> events.publishEvent(new FilmChangedEvent(film.getId(), film)));
+        return film;
     }
 
     public Collection<Film> findAll() {
@@ -153,174 +125,181 @@ public class FilmDbStorage implements FilmStorage {
         String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa, m.MPARating_id, m.MPA_Rating_name FROM films f LEFT JOIN MPA_Ratings m ON f.mpa = m.MPARating_id";
 
         // Загружаем все фильмы
-        List<Film> films = jdbc.query(sql, (rs, rowNum) -> {
-            Integer mpaId = rs.getObject("MPARating_id", Integer.class);
-            String mpaName = rs.getString("MPA_Rating_name");
-
-            // Создаем объект MPARating только если данные не null
-            MPARating mpaRating = mpaId != null ? new MPARating(mpaId, mpaName) : null;
+        List<Film> films = jdbc.query(sql, (rs, rowNum) -> mapFilmWithMpa(rs));
 
-            // Создаем объект Film
-            return new Film(
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getString("description"),
-                    rs.getDate("release_date").toLocalDate(),
-                    rs.getInt("duration"),
-                    new HashSet<>(),  // Жанры будут заполнены позже
-                    mpaRating,
-                    new HashSet<>()
-            );
-        });
+        // Жанры и режиссеры догружаются пачками по идентификаторам загруженных фильмов
+        return filmHydrator.hydrate(films);
+    }
 
-        // Получаем все жанры для фильмов
-        Map<Integer, HashSet<Genre>> allFilmGenres = getAllFilmGenres();
-        Map<Integer, HashSet<Director>> allFilmDirectors = getAllFilmDirectors();
+    @Override
+    public Page<Film> findPage(String cursor, int limit) {
+        long afterId = cursor == null ? 0 : PageCursor.decode(cursor, 1)[0];
+        String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa, m.MPARating_id, m.MPA_Rating_name " +
+                "FROM films f LEFT JOIN MPA_Ratings m ON f.mpa = m.MPARating_id WHERE f.id > ? ORDER BY f.id LIMIT ?";
+        List<Film> films = jdbc.query(sql, (rs, rowNum) -> mapFilmWithMpa(rs), afterId, limit + 1L);
+        Page<Film> page = PageCursor.page(films, limit, film -> new long[]{film.getId()});
+        filmHydrator.hydrate(page.getItems());
+        return page;
+    }
 
-        // Заполняем жанры и режиссеров для каждого фильма
-        films.forEach(film -> {
-            film.setGenres(allFilmGenres.getOrDefault(film.getId(), new HashSet<>()));
-            film.setDirectors(allFilmDirectors.getOrDefault(film.getId(), new HashSet<>()));
+    @Override
+    public void streamAll(Consumer<List<Film>> action) {
+        String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa, m.MPARating_id, m.MPA_Rating_name " +
+                "FROM films f LEFT JOIN MPA_Ratings m ON f.mpa = m.MPARating_id ORDER BY f.id";
+        // Однонаправленный курсор читает строки порциями по fetch size; в памяти держится только текущая пачка,
+        // которая догружается жанрами и режиссерами и сразу отдается потребителю
+        List<Film> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        jdbc.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_CHUNK_SIZE);
+            return ps;
+        }, rs -> {
+            chunk.add(mapFilmWithMpa(rs));
+            if (chunk.size() == STREAM_CHUNK_SIZE) {
+                action.accept(filmHydrator.hydrate(new ArrayList<>(chunk)));
+                chunk.clear();
+            }
         });
-        return films;
+        if (!chunk.isEmpty()) {
+            action.accept(filmHydrator.hydrate(chunk));
+        }
     }
 
-    // Метод для получения всех режиссеров
-    private Map<Integer, HashSet<Director>> getAllFilmDirectors() {
-        String sql = " SELECT fd.film_id, d.id, d.name FROM film_directors fd JOIN directors d ON fd.directors_id = d.id ";
-        Map<Integer, HashSet<Director>> allFilmDirectors = new HashMap<>();
-
-        jdbc.query(sql, (rs, rowNum) -> {
-            Integer filmId = rs.getInt("film_id");
-            Director director = new Director(
-                    rs.getInt("id"),
-                    rs.getString("name")
-            );
+    private static Film mapFilmWithMpa(ResultSet rs) throws SQLException {
+        Integer mpaId = rs.getObject("MPARating_id", Integer.class);
+        String mpaName = rs.getString("MPA_Rating_name");
 
-            allFilmDirectors.computeIfAbsent(filmId, k -> new HashSet<>()).add(director);
-            return null;
-        });
+        // Создаем объект MPARating только если данные не null
+        MPARating mpaRating = mpaId != null ? new MPARating(mpaId, mpaName) : null;
 
-        return allFilmDirectors;
+        // Создаем объект Film
+        return new Film(
+                rs.getInt("id"),
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getDate("release_date").toLocalDate(),
+                rs.getInt("duration"),
+                new HashSet<>(),  // Жанры будут заполнены позже
+                mpaRating,
+                new HashSet<>()
+        );
     }
 
-    private void validateMpaRating(MPARating mpaRating) {
-        String sql = "SELECT COUNT(*) FROM MPA_Ratings WHERE MPARating_id = ?";
-        Integer count = jdbc.queryForObject(sql, Integer.class, mpaRating.getId());
-        if (count == null || count == 0) {
-            throw new MPAException("Ошибка с заполнением рейтинга");
+    // Подстановка рейтинга, жанров и режиссеров из кэша справочников вместо запросов к базе.
+    // Жанры без повторов упорядочиваются по ID, режиссеры без ID пропускаются
+    private void resolveReferences(Film film) {
+        if (film.getMpa() != null) {
+            MPARating mpaRating = film.getMpa().getId() == null ? null : referenceCache.getMpaRating(film.getMpa().getId());
+            if (mpaRating == null) {
+                throw new MPAException("Ошибка с заполнением рейтинга");
+            }
+            film.setMpa(mpaRating);
         }
-    }
-
-    private void genreIsNotNull(Genre genre) {
-        String sql = "SELECT COUNT(*) FROM genres WHERE genre_id = ?";
-        Integer count = jdbc.queryForObject(sql, Integer.class, genre.getId());
-        if (count == null || count == 0) {
-            throw new GenreException("Ошибка с заполнением жанра");
+        if (film.getGenres() != null) {
+            Map<Integer, Genre> genres = new TreeMap<>();
+            for (Genre genre : film.getGenres()) {
+                Genre cached = genre.getId() == null ? null : referenceCache.getGenre(genre.getId());
+                if (cached == null) {
+                    throw new GenreException("Ошибка с заполнением жанра");
+                }
+                genres.put(cached.getId(), cached);
+            }
+            film.setGenres(new LinkedHashSet<>(genres.values()));
         }
-    }
-
-    private MPARating getMpaRatingById(Integer id) {
-        String sql = "SELECT MPARating_id, MPA_Rating_name FROM MPA_Ratings WHERE MPARating_id = ?";
-        try {
-            return jdbc.queryForObject(sql, (rs, rowNum) -> new MPARating(
-                    rs.getInt("MPARating_id"),
-                    rs.getString("MPA_Rating_name")
-            ), id);
-        } catch (EmptyResultDataAccessException e) {
-            log.warn("MPA Rating с id {} не найден", id);
-            return null; // Или выбросить свое исключение, если отсутствие значения критично
+        if (film.getDirectors() != null) {
+            Set<Director> directors = new LinkedHashSet<>();
+            for (Director director : film.getDirectors()) {
+                if (director.getId() == null) {
+                    continue;
+                }
+                Director cached = referenceCache.getDirector(director.getId());
+                if (cached == null) {
+                    throw new NotFoundException("Режиссер по ид : " + director.getId() + " не найден");
+                }
+                directors.add(cached);
+            }
+            film.setDirectors(directors);
         }
     }
 
-    private MPARating getMpaRatingByIdFilm(Integer id) {
-        String sql = "SELECT MPARating_id, MPA_Rating_name FROM MPA_Ratings m join films f on f.mpa = m.MPARating_id WHERE f.id = ?";
-        try {
-            return jdbc.queryForObject(sql, (rs, rowNum) -> new MPARating(
-                    rs.getInt("MPARating_id"),
-                    rs.getString("MPA_Rating_name")
-            ), id);
-        } catch (EmptyResultDataAccessException e) {
-            log.warn("MPA Rating  для id фильма {} не найден", id);
-            return null; // Или выбросить свое исключение, если отсутствие значения критично
+    // Пачка фильмов одной транзакцией: ссылки всех фильмов проверяются по кэшу до первого запроса,
+    // фильмы пишутся одним многострочным INSERT с возвратом сгенерированных id (в порядке строк),
+    // жанры и режиссеры всей пачки - по одному INSERT на таблицу
+    @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
         }
-    }
-
-    private void addGenreToFilm(Film film) {
-        String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-
-        // Если у фильма нет жанров, выходим из метода
-        if (film.getGenres() == null || film.getGenres().isEmpty()) {
-            log.warn("Фильм с ID {} не содержит жанров для добавления.", film.getId());
-            return;
+        films.forEach(this::resolveReferences);
+        StringBuilder sql = new StringBuilder("INSERT INTO films (name, description, RELEASE_DATE, duration, mpa) VALUES ");
+        for (int i = 0; i < films.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
         }
-
-        // Уникальный набор жанров фильма, отсортированный по ID от меньшего к большему
-        List<Genre> sortedGenres = film.getGenres().stream()
-                .filter(genre -> {
-                    genreIsNotNull(genre); // Проверяем существование жанра
-                    return !isGenreAlreadyAdded(film.getId(), genre.getId()); // Фильтруем уже добавленные жанры
-                }).sorted(Comparator.comparingInt(Genre::getId))
-                .sorted(Comparator.comparingInt(Genre::getId)) // Сортируем жанры по ID в порядке возрастания
-                .toList();
-
-        log.info("Список жанров для добавления (отсортирован): {}", sortedGenres);
-        film.setGenres(new LinkedHashSet<>(sortedGenres));
-        // Выполняем пакетную вставку
-        jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
-            @Override
-            public void setValues(PreparedStatement ps, int i) throws SQLException {
-                Genre genre = sortedGenres.get(i);
-                ps.setInt(1, film.getId());
-                ps.setInt(2, genre.getId());
-                log.info("Добавление жанра с ID {} к фильму с ID {}", genre.getId(), film.getId());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(), new String[]{"id"});
+            int index = 1;
+            for (Film film : films) {
+                ps.setString(index++, film.getName());
+                ps.setString(index++, film.getDescription());
+                ps.setDate(index++, Date.valueOf(film.getReleaseDate()));
+                ps.setInt(index++, film.getDuration());
+                ps.setObject(index++, film.getMpa() == null ? null : film.getMpa().getId());
             }
+            return ps;
+        }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(((Number) keys.get(i).get("id")).intValue());
+        }
 
-            @Override
-            public int getBatchSize() {
-                return sortedGenres.size();
+        List<Integer> genrePairs = new ArrayList<>();
+        List<Integer> directorPairs = new ArrayList<>();
+        for (Film film : films) {
+            if (film.getGenres() != null) {
+                film.getGenres().forEach(genre -> Collections.addAll(genrePairs, film.getId(), genre.getId()));
             }
-        });
-
-        log.info("Добавление жанров завершено для фильма с ID {}", film.getId());
+            if (film.getDirectors() != null) {
+                film.getDirectors().forEach(director -> Collections.addAll(directorPairs, film.getId(), director.getId()));
+            }
+        }
+        insertPairs("INSERT INTO film_genres (film_id, genre_id) VALUES ", genrePairs);
+        insertPairs("INSERT INTO film_directors (film_id, directors_id) VALUES ", directorPairs);
+
+        // Индексы узнают о пачке только после фиксации. Список копируется: вызывающий переиспользует свой
+        List<Film> created = List.copyOf(films);
+        AfterCommit.run(() -> created.forEach(film -> events.publishEvent(new FilmChangedEvent(film.getId(), film))));
+        log.info("Пачкой добавлено {} фильмов, {} жанров и {} режиссеров", films.size(),
+                genrePairs.size() / 2, directorPairs.size() / 2);
+        return films;
     }
 
-    private void addDirectorToFilm(Film film) {
-        if (film.getDirectors() == null || film.getDirectors().isEmpty()) {
-            log.warn("Список режиссеров для фильма с ID {} пустой или равен null", film.getId());
-            return;
+    // Жанры и режиссеры фильма, уже проверенные в resolveReferences, - по одному запросу на таблицу
+    private void insertLinks(Film film) {
+        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
+            List<Integer> pairs = new ArrayList<>();
+            film.getGenres().forEach(genre -> Collections.addAll(pairs, film.getId(), genre.getId()));
+            insertPairs("INSERT INTO film_genres (film_id, genre_id) VALUES ", pairs);
         }
-
-        String sql = "INSERT INTO film_directors (film_id, directors_id) VALUES (?, ?)";
-        List<Director> validDirectors = film.getDirectors().stream()
-                .filter(director -> director.getId() != null)
-                .collect(Collectors.toList());
-
-        if (validDirectors.isEmpty()) {
-            log.warn("Фильм с ID {} содержит только недействительные или пустые режиссеры", film.getId());
-            return;
+        if (film.getDirectors() != null && !film.getDirectors().isEmpty()) {
+            List<Integer> pairs = new ArrayList<>();
+            film.getDirectors().forEach(director -> Collections.addAll(pairs, film.getId(), director.getId()));
+            insertPairs("INSERT INTO film_directors (film_id, directors_id) VALUES ", pairs);
         }
-
-        jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
-            @Override
-            public void setValues(PreparedStatement ps, int i) throws SQLException {
-                Director director = validDirectors.get(i);
-                ps.setInt(1, film.getId());
-                ps.setInt(2, director.getId());
-                log.info("Добавление режиссера с ID {} к фильму с ID {}", director.getId(), film.getId());
-            }
-
-            @Override
-            public int getBatchSize() {
-                return validDirectors.size();
-            }
-        });
+        log.info("Фильм с ID {}: добавлены жанры {} и режиссеры {}", film.getId(), film.getGenres(), film.getDirectors());
     }
 
-    private boolean filmExists(Integer id) {
-        String sql = "SELECT COUNT(*) FROM films WHERE id = ?";
-        Integer count = jdbc.queryForObject(sql, Integer.class, id);
-        return count != null && count > 0;
+    // Многострочный INSERT ... VALUES (?, ?), (?, ?); pairs - значения подряд: filmId, id, filmId, id, ...
+    private void insertPairs(String insert, List<Integer> pairs) {
+        if (pairs.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(insert);
+        for (int i = 0; i < pairs.size(); i += 2) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+        jdbc.update(sql.toString(), pairs.toArray());
     }
 
     @Override
@@ -344,17 +323,7 @@ public class FilmDbStorage implements FilmStorage {
                         new HashSet<>()
                 );
             }, id);
-            HashSet<Genre> genres = getFilmGenresById(film.getId());
-            if (genres != null) {
-                film.setGenres(genres);
-                log.info("жанр добавлен");
-            } else {
-                film.setGenres(new HashSet<>());
-            }
-            Set<Director> directors = getFilmDirectorsById(film.getId());
-            if (!directors.isEmpty()) {
-                film.setDirectors(directors);
-            }
+            filmHydrator.hydrate(List.of(film));
             return Optional.of(film);
         } catch (EmptyResultDataAccessException e) {
             log.error("Ошибка при поиске фильма по id " + id + ": " + e.getMessage());
@@ -362,41 +331,33 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
-    private HashSet<Genre> getFilmGenresById(Integer filmId) {
-        String sql = "SELECT g.genre_id, g.genre_name FROM film_genres AS fg LEFT JOIN genres AS g ON fg.genre_id = g.genre_id WHERE film_id = ?";
-        List<Genre> genresList = jdbc.query(sql, (rs, rowNum) -> new Genre(
-                rs.getInt("genre_id"),
-                rs.getString("genre_name")
-        ), filmId);
-        HashSet<Genre> uniqueGenres = new HashSet<>(genresList);
-        return uniqueGenres;
-    }
-
-    private Set<Director> getFilmDirectorsById(Integer filmId) {
-        String sql = """
-                SELECT d.id, d.name
-                FROM directors d
-                INNER JOIN film_directors fd ON d.id = fd.directors_id
-                WHERE fd.film_id = ?
-                """;
-
-        // Выполняем запрос и преобразуем результат в Set для устранения дубликатов
-        return new HashSet<>(jdbc.query(sql, new DirectorRowMapper(), filmId));
-    }
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (List<Integer> chunk : FilmHydrator.chunks(ids)) {
+            loadFilms(chunk, filmsById);
+        }
 
-    private boolean isGenreAlreadyAdded(Integer filmId, Integer genreId) {
-        String sql = "SELECT COUNT(*) FROM film_genres WHERE film_id = ? AND genre_id = ?";
-        Integer count = jdbc.queryForObject(sql, Integer.class, filmId, genreId);
-        return count != null && count > 0;
+        // Сохраняем порядок, в котором были переданы идентификаторы
+        List<Film> films = new ArrayList<>();
+        for (Integer id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return filmHydrator.hydrate(films);
     }
 
-    @Override
-    public List<Film> getPopularFilms(Integer count) {
-        String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa, m.MPARating_id, m.MPA_Rating_name, COUNT(l.user_id) as likesCount " +
-                "FROM films f LEFT JOIN film_likes l ON f.id = l.film_id " +
-                "LEFT JOIN MPA_Ratings m ON f.mpa = m.MPARating_id " +
-                "GROUP BY f.id ORDER BY likesCount DESC, f.id DESC LIMIT ?";
-        List<Film> films = jdbc.query(sql, (rs, rowNum) -> {
+    private void loadFilms(List<Integer> ids, Map<Integer, Film> filmsById) {
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa, m.MPARating_id, m.MPA_Rating_name " +
+                "FROM films AS f " +
+                "LEFT JOIN MPA_Ratings m ON f.mpa = m.MPARating_id WHERE f.id IN (" + placeholders + ")";
+        jdbc.query(sql, (rs, rowNum) -> {
             Film film = new Film(
                     rs.getInt("id"),
                     rs.getString("name"),
@@ -410,37 +371,9 @@ public class FilmDbStorage implements FilmStorage {
                     ) : null,
                     new HashSet<>()
             );
-
-
-
-           // addGenreToFilm(film);
-            return film;
-        }, count);
-        Map<Integer, HashSet<Genre>> allFilmGenres = getAllFilmGenres();
-        // Map<Integer, HashSet<Director>> allFilmDirectors = getAllFilmDirectors();
-
-        // Заполняем жанры и директоров для каждого фильма
-        films.forEach(film -> {
-            film.setGenres(allFilmGenres.getOrDefault(film.getId(), new HashSet<>()));
-           // film.setDirectors(allFilmDirectors.getOrDefault(film.getId(), new HashSet<>()));
-        });
-        return films;
-    }
-
-    private Map<Integer, HashSet<Genre>> getAllFilmGenres() {
-        String sql = "SELECT fg.film_id, g.genre_id, g.genre_name FROM film_genres fg JOIN genres g ON fg.genre_id = g.genre_id";
-        Map<Integer, HashSet<Genre>> allFilmGenres = new HashMap<>();
-
-        jdbc.query(sql, (rs, rowNum) -> {
-            Integer filmId = rs.getInt("film_id");
-            Genre genre = new Genre(rs.getInt("genre_id"), rs.getString("genre_name"));
-
-            // Используем HashSet для уникальности жанров
-            allFilmGenres.computeIfAbsent(filmId, k -> new HashSet<>()).add(genre);
+            filmsById.put(film.getId(), film);
             return null;
-        });
-
-        return allFilmGenres;
+        }, ids.toArray());
     }
 
     @Override
@@ -456,99 +389,61 @@ public class FilmDbStorage implements FilmStorage {
             throw new NotFoundException("There are no items to sort.");
         }
 
-        // Получаем все жанры и режиссеров для фильмов
-        Map<Integer, HashSet<Genre>> allFilmGenres = getAllFilmGenres();
-        Map<Integer, HashSet<Director>> allFilmDirectors = getAllFilmDirectors();
-
-        // Заполняем жанры, режиссеров и проверяем наличие MPA для каждого фильма
-        films.forEach(film -> {
-            film.setGenres(allFilmGenres.getOrDefault(film.getId(), new HashSet<>()));
-            film.setDirectors(allFilmDirectors.getOrDefault(film.getId(), new HashSet<>()));
-
-            // Если MPA отсутствует, загружаем его вручную
-            if (film.getMpa() == null) {
-                film.setMpa(getMpaRatingByIdFilm(film.getId()));
-            }
-        });
-
-        return films;
+        // Жанры, режиссеры и MPA догружаются пачкой для всех фильмов режиссера
+        return filmHydrator.hydrate(films);
     }
 
     @Override
-    public List<Film> getSearch(String query, String by) {
-
-        Set<Film> set = new HashSet<>();
-        set.addAll(getSearchBy("%" + query + "%", by));
-        return new ArrayList<>(set);
+    public List<Film> getSearch(String query, String by, boolean fuzzy, Integer after, int limit) {
+        Set<String> fields = Arrays.stream(by.split(","))
+                .map(String::trim)
+                .collect(Collectors.toSet());
+        // Индекс возвращает уже ранжированные различные id одной страницы, из базы загружаются только они
+        List<Integer> filmIds = searchIndex.search(query, fields.contains("title"), fields.contains("director"),
+                fuzzy, after, limit);
+        return getFilmsByIds(filmIds);
     }
 
+    @Override
+    public Page<Film> getDirectorSortPage(Integer directorId, String sortBy, String cursor, int limit) {
+        boolean byYear = "year".equalsIgnoreCase(sortBy);
+        // Ключ сортировки дополнен id, чтобы он был уникальным и курсор однозначно задавал позицию
+        String sortColumn = byYear ? "f.release_date" : "f.likes_count";
+        List<Object> params = new ArrayList<>(List.of(directorId));
+        String afterCursor = "";
+        if (cursor != null) {
+            long[] key = PageCursor.decode(cursor, 2);
+            Object sortValue = byYear ? Date.valueOf(LocalDate.ofEpochDay(key[0])) : key[0];
+            afterCursor = " AND (" + sortColumn + (byYear ? " > ?" : " < ?") +
+                    " OR (" + sortColumn + " = ? AND f.id > ?))";
+            params.addAll(List.of(sortValue, sortValue, key[1]));
+        }
+        params.add(limit + 1L);
+        String sql = "SELECT f.* FROM films f JOIN film_directors fd ON f.id = fd.film_id WHERE fd.directors_id = ?" +
+                afterCursor + " ORDER BY " + sortColumn + (byYear ? "" : " DESC") + ", f.id LIMIT ?";
 
-    private List<Film> getSearchBy(String query, String by) {
-        String[] byArr = by.split(",");
-        // SQL-запрос для поиска фильмов и режиссеров
-        String sql = "WITH res AS (SELECT COUNT(user_id) likes, film_id FROM film_likes GROUP BY film_id)\n" +
-                "SELECT f.*, m.MPARating_id, m.MPA_Rating_name, r.likes FROM films f\n" +
-                "LEFT JOIN film_directors fd ON f.id = fd.film_id \n" +
-                "LEFT JOIN directors d ON d.id = fd.directors_id \n" +
-                "LEFT JOIN MPA_Ratings m ON f.mpa = m.MPARating_id \n" +
-                "LEFT JOIN res AS r ON r.film_id = f.id\n" +
-                "WHERE (CASE WHEN ? LIKE 'director' THEN UPPER(d.name) LIKE ? ELSE UPPER(f.name) LIKE ? END)\n" +
-                "or (CASE WHEN ? LIKE 'title' THEN UPPER(f.name) LIKE ? ELSE UPPER(d.name) LIKE ? END) ORDER BY r.likes desc";
-
-        // Выполнение запроса и обработка результатов
-        return jdbc.query(sql, (rs, rowNum) -> {
-            // Создаем объект Film
-            Film film = new Film(
+        Map<Integer, Integer> likesCounts = new HashMap<>();
+        List<Film> films = jdbc.query(sql, (rs, rowNum) -> {
+            likesCounts.put(rs.getInt("id"), rs.getInt("likes_count"));
+            return new Film(
                     rs.getInt("id"),
                     rs.getString("name"),
                     rs.getString("description"),
                     rs.getDate("release_date").toLocalDate(),
                     rs.getInt("duration"),
-                    new HashSet<>(), // Жанры будут заполнены позже
-                    rs.getObject("MPARating_id") != null ? new MPARating(
-                            rs.getInt("MPARating_id"),
-                            rs.getString("MPA_Rating_name")
-                    ) : null,
-                    new HashSet<>(), // Режиссеры будут заполнены позже
-                    rs.getInt("likes")
+                    new HashSet<>(),
+                    null,
+                    new HashSet<>()
             );
-
-            // Добавляем жанры и режиссеров
-            film.setGenres(getGenresByIdFilm(film.getId()));
-            film.setDirectors(getDirectorByIdFilm(film.getId()));
-
-            return film;
-        }, byArr[0], query.toUpperCase(), query.toUpperCase(), byArr.length == 2 ? byArr[1] : byArr[0], query.toUpperCase(), query.toUpperCase());
-
-    }
-
-    private Set<Director> getDirectorByIdFilm(Integer idFilm) {
-        // SQL-запрос для получения списка режиссеров, связанных с фильмом
-        String sql = " SELECT d.id, d.name FROM directors d INNER JOIN film_directors fd ON fd.directors_id = d.id WHERE fd.film_id = ?";
-
-        // Логируем информацию о начале выполнения метода
-        log.debug("Получение списка режиссеров для фильма с ID {}", idFilm);
-
-        // Выполняем запрос и возвращаем результат
-        try {
-            // Преобразуем результат в Set для устранения дублирования
-            Set<Director> directors = new HashSet<>(jdbc.query(sql, new DirectorRowMapper(), idFilm));
-
-            // Логируем полученный результат
-            log.debug("Найдено {} уникальных режиссеров для фильма с ID {}", directors.size(), idFilm);
-
-            return directors;
-        } catch (DataAccessException e) {
-            // Логируем ошибку, если запрос завершился неудачно
-            log.error("Ошибка при получении режиссеров для фильма с ID {}: {}", idFilm, e.getMessage());
-            return Collections.emptySet(); // Возвращаем пустой Set в случае ошибки
+        }, params.toArray());
+        if (films.isEmpty() && cursor == null) {
+            throw new NotFoundException("There are no items to sort.");
         }
-    }
-
-    private HashSet<Genre> getGenresByIdFilm(Integer idFilm) {
-        String sql = "SELECT g.* FROM genres g JOIN film_genres fg ON fg.genre_id = g.genre_id WHERE fg.film_id = ?";
-        List<Genre> genresList = jdbc.query(sql, new GenreRowMapper(), idFilm);
-        return new HashSet<>(genresList);
+        Page<Film> page = PageCursor.page(films, limit, film -> new long[]{
+                byYear ? film.getReleaseDate().toEpochDay() : likesCounts.get(film.getId()),
+                film.getId()});
+        filmHydrator.hydrate(page.getItems());
+        return page;
     }
 
     private List<Film> getFilmSortYear(Integer directorId) {
@@ -566,9 +461,8 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     private List<Film> getFilmSortLike(Integer directorId) {
-        String sql = "WITH res AS (SELECT COUNT(user_id) likes, film_id FROM film_likes GROUP BY film_id)\n" +
-                "SELECT f.* FROM films f JOIN film_directors fd ON f.id = fd.film_id LEFT JOIN res AS r ON r.FILM_ID = f.ID " +
-                "WHERE fd.directors_id = ? ORDER BY likes DESC";
+        String sql = "SELECT f.* FROM films f JOIN film_directors fd ON f.id = fd.film_id " +
+                "WHERE fd.directors_id = ? ORDER BY f.likes_count DESC";
 
         List<Film> films = jdbc.query(sql, (rs, rowNum) -> new Film(
                 rs.getInt("id"),
@@ -583,69 +477,8 @@ public class FilmDbStorage implements FilmStorage {
         return films;
     }
 
-    public List<Film> getPopularFilms(int count, Integer genreId, Integer year) {
-        // Базовый SQL-запрос
-        StringBuilder sql = new StringBuilder(
-                "SELECT f.id, f.name, f.description, f.release_date, f.duration, m.MPARating_id, m.MPA_Rating_name, " +
-                        "COUNT(fl.user_id) AS likes " +
-                        "FROM films f " +
-                        "LEFT JOIN MPA_Ratings m ON f.mpa = m.MPARating_id " +
-                        "LEFT JOIN film_likes fl ON f.id = fl.film_id " +
-                        "LEFT JOIN film_genres fg ON f.id = fg.film_id "
-        );
-
-        // Условия фильтрации
-        List<Object> params = new ArrayList<>();
-        if (genreId != null || year != null) {
-            sql.append("WHERE ");
-            if (genreId != null) {
-                sql.append("fg.genre_id = ? ");
-                params.add(genreId);
-            }
-            if (year != null) {
-                if (genreId != null) {
-                    sql.append("AND ");
-                }
-                sql.append("YEAR(f.release_date) = ? ");
-                params.add(year);
-            }
-        }
-
-        // Группировка и сортировка
-        sql.append("GROUP BY f.id, f.name, f.description, f.release_date, f.duration, m.MPA_Rating_name, m.MPARating_id ")
-                .append("ORDER BY likes DESC ")
-                .append("LIMIT ?");
-
-        params.add(count);
-
-        // Выполнение основного запроса
-        List<Film> films = jdbc.query(sql.toString(), (rs, rowNum) -> new Film(
-                rs.getInt("id"),
-                rs.getString("name"),
-                rs.getString("description"),
-                rs.getDate("release_date").toLocalDate(),
-                rs.getInt("duration"),
-                new HashSet<>(), // Жанры будут заполнены позже
-                rs.getObject("MPARating_id") != null ? new MPARating(
-                        rs.getInt("MPARating_id"),
-                        rs.getString("MPA_Rating_name")
-                ) : null,
-                new HashSet<>() // Директоры будут заполнены позже
-        ), params.toArray());
-
-        // Получаем все жанры и директоров
-        Map<Integer, HashSet<Genre>> allFilmGenres = getAllFilmGenres();
-        Map<Integer, HashSet<Director>> allFilmDirectors = getAllFilmDirectors();
-
-        // Заполняем жанры и директоров для каждого фильма
-        films.forEach(film -> {
-            film.setGenres(allFilmGenres.getOrDefault(film.getId(), new HashSet<>()));
-            film.setDirectors(allFilmDirectors.getOrDefault(film.getId(), new HashSet<>()));
-        });
-
-        return films;
-    }
-
+    // Лайки, жанры и сам фильм удаляются одной транзакцией; индексы узнают об удалении только после её фиксации
+    @Transactional
     public void deleteFilmById(Integer id) {
         try {
             String deleteLikesSql = "DELETE FROM film_likes WHERE film_id = ?";
@@ -660,6 +493,10 @@ public class FilmDbStorage implements FilmStorage {
             if (rowsAffected == 0) {
                 throw new NotFoundException("Фильм с id " + id + " не найден");
             }
+            AfterCommit.run(() -> {
+                likeIndex.removeFilm(id);
+                events.publishEvent(new FilmChangedEvent(id, null));
+            });
         } catch (DataAccessException e) {
             throw new RuntimeException("Ошибка при удалении фильма с id " + id + ": " + e.getMessage(), e);
         }
@@ -672,32 +509,23 @@ public class FilmDbStorage implements FilmStorage {
                 LEFT JOIN MPA_Ratings m ON f.mpa = m.MPARating_id
                 JOIN film_likes fl1 ON f.id = fl1.FILM_ID AND fl1.USER_ID = ?
                 JOIN film_likes fl2 ON f.id = fl2.FILM_ID AND fl2.USER_ID = ?
-                ORDER BY (SELECT COUNT(*) FROM film_likes fl WHERE fl.FILM_ID = f.id) DESC
+                ORDER BY f.likes_count DESC
                 """;
 
-        return jdbc.query(sql, (rs, rowNum) -> {
-
-            Film film = new Film(
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getString("description"),
-                    rs.getDate("release_date").toLocalDate(),
-                    rs.getInt("duration"),
-                    new HashSet<>(),
-                    rs.getObject("mpa") != null ? new MPARating(
-                            rs.getInt("MPARating_id"),
-                            rs.getString("MPA_Rating_name")
-                    ) : null,
-                    new HashSet<>()
-            );
-
-            HashSet<Genre> genres = getFilmGenresById(film.getId());
-            if (!genres.isEmpty()) {
-                film.setGenres(genres);
-            }
-            return film;
-
-        }, userId, friendId);
+        List<Film> films = jdbc.query(sql, (rs, rowNum) -> new Film(
+                rs.getInt("id"),
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getDate("release_date").toLocalDate(),
+                rs.getInt("duration"),
+                new HashSet<>(),
+                rs.getObject("mpa") != null ? new MPARating(
+                        rs.getInt("MPARating_id"),
+                        rs.getString("MPA_Rating_name")
+                ) : null,
+                new HashSet<>()
+        ), userId, friendId);
+        return filmHydrator.hydrate(films);
     }
 }
 
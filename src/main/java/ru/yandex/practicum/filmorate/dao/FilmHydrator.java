@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPARating;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Догрузка жанров, режиссеров и MPA для списка фильмов.
+// На каждую связанную таблицу выполняется один запрос с IN (...) на всю пачку фильмов,
+// поэтому число запросов не зависит от размера выборки (кроме очень больших выборок, которые режутся на части).
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmHydrator {
+    private static final int CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbc;
+
+    public List<Film> hydrate(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        List<Integer> ids = films.stream()
+                .map(Film::getId)
+                .distinct()
+                .toList();
+        List<Integer> idsWithoutMpa = films.stream()
+                .filter(film -> film.getMpa() == null)
+                .map(Film::getId)
+                .distinct()
+                .toList();
+
+        Map<Integer, Set<Genre>> genres = new HashMap<>();
+        Map<Integer, Set<Director>> directors = new HashMap<>();
+        Map<Integer, MPARating> mpaRatings = new HashMap<>();
+        for (List<Integer> chunk : chunks(ids)) {
+            loadGenres(chunk, genres);
+            loadDirectors(chunk, directors);
+        }
+        for (List<Integer> chunk : chunks(idsWithoutMpa)) {
+            loadMpaRatings(chunk, mpaRatings);
+        }
+
+        films.forEach(film -> {
+            film.setGenres(genres.getOrDefault(film.getId(), new LinkedHashSet<>()));
+            film.setDirectors(directors.getOrDefault(film.getId(), new LinkedHashSet<>()));
+            if (film.getMpa() == null) {
+                film.setMpa(mpaRatings.get(film.getId()));
+            }
+        });
+        log.debug("Догружены жанры, режиссеры и MPA для {} фильмов", ids.size());
+        return films;
+    }
+
+    private void loadGenres(List<Integer> ids, Map<Integer, Set<Genre>> genres) {
+        String sql = "SELECT fg.film_id, g.genre_id, g.genre_name FROM film_genres fg JOIN genres g ON fg.genre_id = g.genre_id " +
+                "WHERE fg.film_id IN (" + placeholders(ids) + ") ORDER BY fg.film_id, g.genre_id";
+        jdbc.query(sql, (rs, rowNum) -> {
+            genres.computeIfAbsent(rs.getInt("film_id"), k -> new LinkedHashSet<>())
+                    .add(new Genre(rs.getInt("genre_id"), rs.getString("genre_name")));
+            return null;
+        }, ids.toArray());
+    }
+
+    private void loadDirectors(List<Integer> ids, Map<Integer, Set<Director>> directors) {
+        String sql = "SELECT fd.film_id, d.id, d.name FROM film_directors fd JOIN directors d ON fd.directors_id = d.id " +
+                "WHERE fd.film_id IN (" + placeholders(ids) + ") ORDER BY fd.film_id, d.id";
+        jdbc.query(sql, (rs, rowNum) -> {
+            directors.computeIfAbsent(rs.getInt("film_id"), k -> new LinkedHashSet<>())
+                    .add(new Director(rs.getInt("id"), rs.getString("name")));
+            return null;
+        }, ids.toArray());
+    }
+
+    private void loadMpaRatings(List<Integer> ids, Map<Integer, MPARating> mpaRatings) {
+        String sql = "SELECT f.id, m.MPARating_id, m.MPA_Rating_name FROM films f JOIN MPA_Ratings m ON f.mpa = m.MPARating_id " +
+                "WHERE f.id IN (" + placeholders(ids) + ")";
+        jdbc.query(sql, (rs, rowNum) -> {
+            mpaRatings.put(rs.getInt("id"), new MPARating(rs.getInt("MPARating_id"), rs.getString("MPA_Rating_name")));
+            return null;
+        }, ids.toArray());
+    }
+
+    private static String placeholders(List<Integer> ids) {
+        return String.join(", ", Collections.nCopies(ids.size(), "?"));
+    }
+
+    // Части не длиннее CHUNK_SIZE, чтобы IN (...) не рос вместе с пачкой
+    static List<List<Integer>> chunks(List<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.dao.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.UpdateUsersException;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
 
@@ -99,6 +100,20 @@ public class FriendshipDbStorage implements FriendshipStorage {
         }
     }
 
+    @Override
+    public Page<User> getFriendsPage(Integer id, String cursor, int limit) {
+        Integer userCount = jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, id);
+        if (userCount == null || userCount == 0) {
+            throw new NotFoundException("User with id " + id + " not found");
+        }
+        long afterId = cursor == null ? 0 : PageCursor.decode(cursor, 1)[0];
+        // Первичный ключ friendships (user_id, friend_id) сразу отдаёт друзей по возрастанию id
+        String sql = "SELECT u.* FROM friendships f JOIN users u ON u.id = f.friend_id " +
+                "WHERE f.user_id = ? AND f.friend_id > ? ORDER BY f.friend_id LIMIT ?";
+        List<User> friends = jdbc.query(sql, userMapper, id, afterId, limit + 1L);
+        return PageCursor.page(friends, limit, user -> new long[]{user.getId()});
+    }
+
     @Override
     public List<User> getCommonFriends(Integer userId, Integer friendId) {
         String sql = "SELECT * FROM users " +
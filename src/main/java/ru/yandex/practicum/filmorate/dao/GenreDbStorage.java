@@ -22,6 +22,7 @@ import java.util.Optional;
 @Qualifier("genreStorage")
 public class GenreDbStorage implements GenreStorage {
     private JdbcTemplate jdbc;
+    private ReferenceDataCache referenceCache;
 
     @Override
     public Genre addGenre(Genre genre) {
@@ -32,6 +33,7 @@ public class GenreDbStorage implements GenreStorage {
             ps.setString(1, genre.getName());
             return ps;
         }, keyHolder);
+        referenceCache.reloadGenres();
         return genre;
     }
 
@@ -50,6 +52,7 @@ public class GenreDbStorage implements GenreStorage {
             log.error("Ошибка при обновлении жанра");
         }
         if (rowsAffected > 0) {
+            referenceCache.reloadGenres();
             return genre;
         } else {
             log.error("Ошибка при обновлении жанра");
@@ -89,6 +92,7 @@ public class GenreDbStorage implements GenreStorage {
             log.error("Ошибка при удалении жанра по id " + id + ": " + e.getMessage());
             return false;
         }
+        referenceCache.reloadGenres();
         return rowsAffected > 0;
     }
 
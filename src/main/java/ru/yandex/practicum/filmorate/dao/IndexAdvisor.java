@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Проверка планов запросов DAO: для каждого запроса из каталога выполняется EXPLAIN,
+// таблицы, которые H2 читает полным просмотром (tableScan), попадают в отчёт.
+// Каталог повторяет запросы классов пакета dao (динамические - в самом длинном варианте)
+// и обновляется вместе с ними. Запросы, которым по смыслу нужна вся таблица (загрузка индексов,
+// findAll, сверка счётчиков), помечены как ожидаемые полные просмотры и в предупреждения не попадают.
+// При filmorate.index-advisor.enabled=true отчёт пишется в лог при старте
+@Slf4j
+@Component
+public class IndexAdvisor {
+
+    record Statement(String name, String sql, boolean fullScanExpected) {
+    }
+
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\*\\s*([\\w.\"]+)\\.tableScan\\s*\\*/");
+
+    private static final String FILM_COLUMNS = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa, " +
+            "m.MPARating_id, m.MPA_Rating_name FROM films f LEFT JOIN MPA_Ratings m ON f.mpa = m.MPARating_id ";
+
+    static final List<Statement> STATEMENTS = List.of(
+            // FilmDbStorage
+            new Statement("FilmDbStorage.findAll", FILM_COLUMNS, true),
+            new Statement("FilmDbStorage.findPage", FILM_COLUMNS + "WHERE f.id > ? ORDER BY f.id LIMIT ?", false),
+            new Statement("FilmDbStorage.getFilmById", FILM_COLUMNS + "WHERE f.id = ?", false),
+            // Популярные фильмы, рекомендации и подсказки: порядок даёт резидентный индекс, из базы - только сами фильмы
+            new Statement("FilmDbStorage.getFilmsByIds", FILM_COLUMNS + "WHERE f.id IN (?, ?)", false),
+            new Statement("FilmDbStorage.update", "UPDATE films SET name = ?, description = ?, release_date = ?, " +
+                    "duration = ?, mpa = ? WHERE id = ?", false),
+            new Statement("FilmDbStorage.update (жанры)", "DELETE FROM film_genres WHERE film_id = ?", false),
+            new Statement("FilmDbStorage.update (режиссеры)", "DELETE FROM film_directors WHERE film_id = ?", false),
+            new Statement("FilmDbStorage.getDirectorSort", "SELECT f.* FROM films f JOIN film_directors fd " +
+                    "ON f.id = fd.film_id WHERE fd.directors_id = ? ORDER BY f.likes_count DESC", false),
+            new Statement("FilmDbStorage.getDirectorSortPage", "SELECT f.* FROM films f JOIN film_directors fd " +
+                    "ON f.id = fd.film_id WHERE fd.directors_id = ? AND (f.release_date > ? OR " +
+                    "(f.release_date = ? AND f.id > ?)) ORDER BY f.release_date, f.id LIMIT ?", false),
+            new Statement("FilmDbStorage.getCommonFilms", FILM_COLUMNS +
+                    "JOIN film_likes fl1 ON f.id = fl1.film_id AND fl1.user_id = ? " +
+                    "JOIN film_likes fl2 ON f.id = fl2.film_id AND fl2.user_id = ? ORDER BY f.likes_count DESC", false),
+            new Statement("FilmDbStorage.deleteFilmById (лайки)", "DELETE FROM film_likes WHERE film_id = ?", false),
+            new Statement("FilmDbStorage.deleteFilmById", "DELETE FROM films WHERE id = ?", false),
+            // FilmHydrator
+            new Statement("FilmHydrator.loadGenres", "SELECT fg.film_id, g.genre_id, g.genre_name FROM film_genres fg " +
+                    "JOIN genres g ON fg.genre_id = g.genre_id WHERE fg.film_id IN (?, ?) ORDER BY fg.film_id, g.genre_id", false),
+            new Statement("FilmHydrator.loadDirectors", "SELECT fd.film_id, d.id, d.name FROM film_directors fd " +
+                    "JOIN directors d ON fd.directors_id = d.id WHERE fd.film_id IN (?, ?) ORDER BY fd.film_id, d.id", false),
+            new Statement("FilmHydrator.loadMpaRatings", "SELECT f.id, m.MPARating_id, m.MPA_Rating_name FROM films f " +
+                    "JOIN MPA_Ratings m ON f.mpa = m.MPARating_id WHERE f.id IN (?, ?)", false),
+            // LikeDbStorage
+            new Statement("LikeDbStorage.addLike", "MERGE INTO film_likes l USING (SELECT CAST(? AS INT) AS user_id, " +
+                    "CAST(? AS INT) AS film_id, CAST(? AS BIGINT) AS created_at) v " +
+                    "ON l.user_id = v.user_id AND l.film_id = v.film_id " +
+                    "WHEN NOT MATCHED THEN INSERT (user_id, film_id, created_at) VALUES (v.user_id, v.film_id, v.created_at)", false),
+            new Statement("LikeDbStorage.removeLike", "DELETE FROM film_likes WHERE user_id = ? AND film_id = ?", false),
+            new Statement("LikeDbStorage.getLikedFilmIds", "SELECT film_id FROM film_likes WHERE user_id = ?", false),
+            new Statement("LikeDbStorage.repairLikesCount", "UPDATE films f SET likes_count = " +
+                    "(SELECT COUNT(*) FROM film_likes l WHERE l.film_id = f.id) " +
+                    "WHERE likes_count <> (SELECT COUNT(*) FROM film_likes l WHERE l.film_id = f.id)", true),
+            // UserDbStorage
+            new Statement("UserDbStorage.getUserById", "SELECT id, name, email, login, birthday FROM users WHERE id = ?", false),
+            new Statement("UserDbStorage.findPage",
+                    "SELECT id, name, email, login, birthday FROM users WHERE id > ? ORDER BY id LIMIT ?", false),
+            new Statement("UserDbStorage.findAll", "SELECT id, name, email, login, birthday FROM users ORDER BY id ASC", true),
+            new Statement("UserDbStorage.deleteUserById (счётчики)", "UPDATE films SET likes_count = likes_count - 1 " +
+                    "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)", false),
+            new Statement("UserDbStorage.deleteUserById (лайки)", "DELETE FROM film_likes WHERE user_id = ?", false),
+            new Statement("UserDbStorage.deleteUserById (друзья)", "DELETE FROM friendships WHERE user_id = ?", false),
+            new Statement("UserDbStorage.deleteUserById (в друзьях)", "DELETE FROM friendships WHERE friend_id = ?", false),
+            // FriendshipDbStorage
+            new Statement("FriendshipDbStorage.isFriend",
+                    "SELECT COUNT(*) FROM friendships WHERE user_id = ? AND friend_id = ?", false),
+            new Statement("FriendshipDbStorage.getAllFriends",
+                    "SELECT u.* FROM users u JOIN friendships f ON u.id = f.friend_id WHERE f.user_id = ?", false),
+            new Statement("FriendshipDbStorage.getFriendsPage", "SELECT u.* FROM friendships f JOIN users u " +
+                    "ON u.id = f.friend_id WHERE f.user_id = ? AND f.friend_id > ? ORDER BY f.friend_id LIMIT ?", false),
+            new Statement("FriendshipDbStorage.getCommonFriends", "SELECT * FROM users " +
+                    "JOIN friendships friend1 ON users.id = friend1.friend_id " +
+                    "JOIN friendships friend2 ON users.id = friend2.friend_id " +
+                    "WHERE friend1.user_id = ? AND friend2.user_id = ?", false),
+            // UserFeedEventDbStorage
+            new Statement("UserFeedEventDbStorage.getUserFeed",
+                    "SELECT * FROM user_feed WHERE user_id = ? ORDER BY timestamp ASC", false),
+            new Statement("UserFeedEventDbStorage.getUserFeedPage", "SELECT * FROM user_feed WHERE user_id = ? " +
+                    "AND (timestamp > ? OR (timestamp = ? AND event_id > ?)) ORDER BY timestamp ASC, event_id ASC LIMIT ?", false),
+            // ReviewStorage
+            new Statement("ReviewStorage.getReviewById", "SELECT * FROM reviews WHERE review_id = ?", false),
+            new Statement("ReviewStorage.addReview (id)", "SELECT review_id FROM reviews WHERE content = ? AND user_id = ? " +
+                    "ORDER BY review_id DESC LIMIT 1", false),
+            new Statement("ReviewStorage.getReviews",
+                    "SELECT * FROM reviews WHERE film_id = ? ORDER BY useful DESC LIMIT ?", false),
+            // Лучшие отзывы по всем фильмам: сортируется вся таблица
+            new Statement("ReviewStorage.getReviews (все фильмы)",
+                    "SELECT * FROM reviews ORDER BY useful DESC LIMIT ?", true),
+            new Statement("ReviewStorage.getReviewsPage", "SELECT * FROM reviews WHERE film_id = ? " +
+                    "AND (useful < ? OR (useful = ? AND review_id > ?)) ORDER BY useful DESC, review_id ASC LIMIT ?", false),
+            new Statement("ReviewStorage.updateUseful", "UPDATE reviews r SET useful = " +
+                    "(SELECT COALESCE(SUM(CASE WHEN is_like THEN 1 ELSE -1 END), 0) FROM review_likes rl " +
+                    "WHERE rl.review_id = r.review_id) WHERE r.review_id = ?", false),
+            new Statement("ReviewStorage.isLiked",
+                    "SELECT is_like FROM review_likes WHERE review_id = ? AND user_id = ?", false),
+            // DirectorDbStorage, GenreDbStorage, MPADbStorage
+            new Statement("DirectorDbStorage.findById", "SELECT * FROM directors WHERE id = ?", false),
+            new Statement("DirectorDbStorage.create (id)", "SELECT id FROM directors WHERE name = ?", false),
+            new Statement("GenreDbStorage.findGenre",
+                    "SELECT genre_id, genre_name FROM genres WHERE genre_id = ?", false),
+            new Statement("MPADbStorage.findRatingById",
+                    "SELECT MPARating_id, MPA_Rating_name FROM mpa_ratings WHERE MPARating_id = ?", false),
+            // Загрузка резидентных индексов и справочников при старте
+            new Statement("LikeIndex.load", "SELECT user_id, film_id, created_at FROM film_likes ORDER BY user_id, film_id", true),
+            new Statement("TrendingIndex.load", "SELECT film_id, created_at FROM film_likes", true),
+            new Statement("FilmSearchIndex.load", "SELECT film_id, directors_id FROM film_directors", true),
+            new Statement("PopularityLeaderboard.load", "SELECT film_id, genre_id FROM film_genres", true),
+            new Statement("PopularityLeaderboard.load (фильмы)", "SELECT id, release_date FROM films", true),
+            new Statement("ReferenceDataCache.load", "SELECT id, name FROM directors", true)
+    );
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+
+    public IndexAdvisor(JdbcTemplate jdbc,
+                        @Value("${filmorate.index-advisor.enabled:false}") boolean enabled) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void reportOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        List<String> warnings = advise();
+        if (warnings.isEmpty()) {
+            log.info("IndexAdvisor: все {} запросов DAO обходятся без неожиданных полных просмотров", STATEMENTS.size());
+        } else {
+            warnings.forEach(warning -> log.warn("IndexAdvisor: {}", warning));
+        }
+    }
+
+    // Предупреждения по запросам каталога, которые неожиданно читают таблицу целиком
+    public List<String> advise() {
+        List<String> warnings = new ArrayList<>();
+        for (Statement statement : STATEMENTS) {
+            List<String> scanned = fullScans(statement.sql());
+            if (!scanned.isEmpty() && !statement.fullScanExpected()) {
+                warnings.add(statement.name() + ": полный просмотр " + String.join(", ", scanned));
+            }
+        }
+        return warnings;
+    }
+
+    // Таблицы, которые план запроса читает полным просмотром
+    public List<String> fullScans(String sql) {
+        String plan = explain(sql);
+        log.debug("План запроса {}:\n{}", sql, plan);
+        List<String> tables = new ArrayList<>();
+        Matcher matcher = TABLE_SCAN.matcher(plan);
+        while (matcher.find()) {
+            tables.add(matcher.group(1));
+        }
+        return tables;
+    }
+
+    // План строится при подготовке запроса, поэтому значения параметров не важны: все они NULL
+    private String explain(String sql) {
+        return jdbc.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql);
+            int parameters = ps.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                ps.setObject(i, null);
+            }
+            return ps;
+        }, rs -> {
+            StringBuilder plan = new StringBuilder();
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+            return plan.toString();
+        });
+    }
+}
@@ -2,38 +2,68 @@ package ru.yandex.practicum.filmorate.dao;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
-import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
-import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.storage.LikeStorage;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Slf4j
 @Repository
 @AllArgsConstructor
 public class LikeDbStorage implements LikeStorage {
+    // Лайк ставится одним MERGE: строка вставляется, только если такой пары ещё нет, и число вставленных строк
+    // показывает, изменилось ли что-то. Существование фильма проверяется только после ошибки внешнего ключа
+    static final String MERGE_LIKE = "MERGE INTO film_likes l " +
+            "USING (SELECT CAST(? AS INT) AS user_id, CAST(? AS INT) AS film_id, CAST(? AS BIGINT) AS created_at) v " +
+            "ON l.user_id = v.user_id AND l.film_id = v.film_id " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, film_id, created_at) VALUES (v.user_id, v.film_id, v.created_at)";
+
+    private static final String DELETE_LIKE = "DELETE FROM film_likes WHERE user_id = ? AND film_id = ?";
+    private static final int PAIR_LOCKS = 64;
+
+    // Блокировки пар (пользователь, фильм) для сверки индекса, по остатку от хэша пары
+    private final Object[] pairLocks = newLocks();
 
     private final JdbcTemplate jdbc;
+    private final LikeIndex likeIndex;
 
     @Override
-//    public void addLike(Integer filmId, Integer userId) {
-    public void   addLike(Integer userId, Integer filmId) {
-        if (!isFilmExists(filmId)) {
-            throw new IllegalArgumentException("Фильма с id " + filmId + " не существует.");
-        }
+    @Transactional
+    public boolean addLike(Integer userId, Integer filmId) {
         log.info("Добавляем лайк для фильма с id " + filmId + " от пользователя с id " + userId);
-        if (isLikeAlreadyAdded(filmId, userId)) {
-            return;
+        long likedAt = Instant.now().getEpochSecond();
+        int inserted;
+        try {
+            inserted = jdbc.update(MERGE_LIKE, userId, filmId, likedAt);
+        } catch (DuplicateKeyException e) {
+            // Ту же пару одновременно вставила другая транзакция: для этого запроса ничего не изменилось
+            inserted = 0;
+        } catch (DataIntegrityViolationException e) {
+            if (!isFilmExists(filmId)) {
+                throw new IllegalArgumentException("Фильма с id " + filmId + " не существует.");
+            }
+            throw e;
         }
-        if (isLikeAlreadyAdded(filmId, userId)) {
-            log.warn("Attempt to add existing like for film ID {} and user ID {}", filmId, userId);
-            throw new DuplicateException("Like from user ID " + userId + " for film ID " + filmId + " is existing.");
+        if (inserted == 0) {
+            log.debug("Лайк пользователя {} фильму {} уже стоит", userId, filmId);
+            return false;
         }
-
-        String sql = "INSERT INTO film_likes (user_id, film_id) VALUES (?, ?)";
-        jdbc.update(sql, userId, filmId);
+        // Счётчик меняется в той же транзакции, что и сама запись о лайке, а резидентный индекс - после её фиксации
+        jdbc.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = ?", filmId);
+        AfterCommit.run(() -> syncIndex(userId, filmId));
+        return true;
     }
 
     private boolean isFilmExists(Integer filmId) {
@@ -42,25 +72,125 @@ public class LikeDbStorage implements LikeStorage {
         return Boolean.TRUE.equals(exists);
     }
 
-    private boolean isLikeAlreadyAdded(Integer filmId, Integer userId) {
-        String sql = "SELECT EXISTS(SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
-        Boolean exists = jdbc.queryForObject(sql, Boolean.class, filmId, userId);
-        return Boolean.TRUE.equals(exists);
+    @Override
+    @Transactional
+    public boolean removeLike(Integer userId, Integer filmId) {
+        log.info("Removing like for film ID {} from user ID {}", filmId, userId);
+        if (jdbc.update(DELETE_LIKE, userId, filmId) == 0) {
+            if (!isFilmExists(filmId)) {
+                throw new IllegalArgumentException("Фильма с id " + filmId + " не существует.");
+            }
+            log.debug("Лайка пользователя {} фильму {} нет", userId, filmId);
+            return false;
+        }
+        jdbc.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = ?", filmId);
+        AfterCommit.run(() -> syncIndex(userId, filmId));
+        return true;
     }
 
     @Override
-    public void removeLike(Integer userId, Integer filmId) {
-        if (!isFilmExists(filmId)) {
-            throw new IllegalArgumentException("Фильма с id " + filmId + " не существует.");
+    @Transactional
+    public boolean[] applyBatch(List<LikeOperation> operations, long timestamp) {
+        boolean[] changed = new boolean[operations.size()];
+        long likedAt = timestamp / 1000;
+        // Операции над разными парами перестановочны и идут одной пачкой MERGE и одной пачкой DELETE.
+        // Пачка режется там, где пара повторяется, чтобы её операции применились по порядку
+        Set<Long> pairs = new HashSet<>();
+        int from = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            LikeOperation operation = operations.get(i);
+            if (!pairs.add(pairKey(operation))) {
+                applyRun(operations, from, i, likedAt, changed);
+                pairs.clear();
+                pairs.add(pairKey(operation));
+                from = i;
+            }
         }
-        if (!isLikeAlreadyAdded(filmId, userId)) {
-            log.warn("Attempt to remove non-existing like for film ID {} and user ID {}", filmId, userId);
-            throw new NotFoundException("Like from user ID " + userId + " for film ID " + filmId + " not found.");
+        applyRun(operations, from, operations.size(), likedAt, changed);
+
+        Map<Integer, Integer> deltas = new TreeMap<>();
+        List<Object[]> events = new ArrayList<>();
+        for (int i = 0; i < changed.length; i++) {
+            if (changed[i]) {
+                LikeOperation operation = operations.get(i);
+                deltas.merge(operation.getFilmId(), operation.isAdd() ? 1 : -1, Integer::sum);
+                events.add(new Object[]{operation.getUserId(), "LIKE", operation.getOp(), operation.getFilmId(), timestamp});
+            }
         }
+        jdbc.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE id = ?", deltas.entrySet().stream()
+                .filter(delta -> delta.getValue() != 0)
+                .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                .toList());
+        jdbc.batchUpdate("INSERT INTO user_feed (user_id, event_type, operation, entity_id, timestamp) VALUES (?, ?, ?, ?, ?)",
+                events);
 
-        log.info("Removing like for film ID {} from user ID {}", filmId, userId);
-        String sql = "DELETE FROM film_likes WHERE user_id = ? AND film_id = ?";
-        jdbc.update(sql, userId, filmId);
+        // Индекс меняется только после фиксации пачки: отклонённая или откаченная пачка его не трогает.
+        // Изменившие что-то операции копируются: вызывающий может переиспользовать список до фиксации
+        List<LikeOperation> applied = new ArrayList<>();
+        for (int i = 0; i < changed.length; i++) {
+            if (changed[i]) {
+                applied.add(operations.get(i));
+            }
+        }
+        AfterCommit.run(() -> applied.forEach(operation -> syncIndex(operation.getUserId(), operation.getFilmId())));
+        return changed;
+    }
+
+    // Операции [from, to) над попарно разными парами: число строк каждого оператора показывает,
+    // изменил ли он что-то
+    private void applyRun(List<LikeOperation> operations, int from, int to, long likedAt, boolean[] changed) {
+        List<Integer> added = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            if (operations.get(i).isAdd()) {
+                added.add(i);
+            } else {
+                removed.add(i);
+            }
+        }
+        int[] inserted = jdbc.batchUpdate(MERGE_LIKE, added.stream()
+                .map(i -> new Object[]{operations.get(i).getUserId(), operations.get(i).getFilmId(), likedAt})
+                .toList());
+        for (int k = 0; k < inserted.length; k++) {
+            changed[added.get(k)] = inserted[k] > 0;
+        }
+        int[] deleted = jdbc.batchUpdate(DELETE_LIKE, removed.stream()
+                .map(i -> new Object[]{operations.get(i).getUserId(), operations.get(i).getFilmId()})
+                .toList());
+        for (int k = 0; k < deleted.length; k++) {
+            changed[removed.get(k)] = deleted[k] > 0;
+        }
+    }
+
+    // Колбэки после фиксации разных транзакций над одной парой могут выполниться не в порядке фиксаций,
+    // поэтому индекс выставляется не по операции, а по строке уже зафиксированной базы. Чтение и изменение индекса
+    // идут под блокировкой пары: последний колбэк читает состояние не старше последней фиксации
+    private void syncIndex(int userId, int filmId) {
+        synchronized (pairLocks[Math.floorMod(Long.hashCode(pairKey(userId, filmId)), PAIR_LOCKS)]) {
+            List<Long> likedAt = jdbc.queryForList("SELECT created_at FROM film_likes WHERE user_id = ? AND film_id = ?",
+                    Long.class, userId, filmId);
+            if (likedAt.isEmpty()) {
+                likeIndex.removeLike(userId, filmId);
+            } else {
+                likeIndex.addLike(userId, filmId, likedAt.get(0) == null ? 0 : likedAt.get(0));
+            }
+        }
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[PAIR_LOCKS];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private static long pairKey(LikeOperation operation) {
+        return pairKey(operation.getUserId(), operation.getFilmId());
+    }
+
+    private static long pairKey(int userId, int filmId) {
+        return ((long) userId << 32) | (filmId & 0xFFFFFFFFL);
     }
 
     @Override
@@ -68,4 +198,11 @@ public class LikeDbStorage implements LikeStorage {
         String sql = "SELECT film_id FROM film_likes WHERE user_id = ?";
         return jdbc.query(sql, (rs, rowNum) -> rs.getInt("film_id"), userId);
     }
+
+    @Override
+    public int repairLikesCount() {
+        String sql = "UPDATE films f SET likes_count = (SELECT COUNT(*) FROM film_likes l WHERE l.film_id = f.id) " +
+                "WHERE likes_count <> (SELECT COUNT(*) FROM film_likes l WHERE l.film_id = f.id)";
+        return jdbc.update(sql);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,500 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.model.UserFeedEvent;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Отложенная запись лайков (filmorate.likes.write-behind.enabled=true).
+// Вместо LikeDbStorage лайк сразу меняет резидентный LikeIndex и кладётся сюда, не обращаясь к базе;
+// события ленты о лайках копятся в той же очереди. Повторные изменения пары (пользователь, фильм)
+// схлопываются: в буфере остаётся последнее. Раз в flush-ms или при flush-size накопленных записей буфер
+// сбрасывается одной транзакцией: MERGE/DELETE пачкой в film_likes, сдвиг likes_count затронутых фильмов
+// и пачка INSERT в user_feed. MERGE и DELETE идемпотентны, а счётчик сдвигается только на строки, которые они
+// действительно вставили или удалили, поэтому повторный сброс тех же записей безопасен.
+// Надёжность: каждое изменение до подтверждения клиенту дописывается в журнал (сегменты journal-dir),
+// сегменты удаляются после успешного сброса, а при старте непримененные сегменты проигрываются заново.
+// События ленты при падении между коммитом и удалением сегмента могут записаться дважды.
+// at-most-once=true отключает журнал: при падении процесса несброшенные лайки теряются
+@Slf4j
+@Component
+public class LikeWriteBuffer implements SmartLifecycle {
+
+    // Изменение лайка; added = false - снятие лайка
+    record LikeChange(int userId, int filmId, boolean added, long likedAt) {
+    }
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+    private final LikeIndex likeIndex;
+    private final boolean enabled;
+    private final long flushMillis;
+    private final int flushSize;
+    private final boolean atMostOnce;
+    private final Path journalDir;
+
+    // Перестановка буферов и переключение сегмента журнала - под блокировкой записи,
+    // добавление изменений идёт параллельно под блокировкой чтения
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Object changeLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile Map<Long, LikeChange> likes = new ConcurrentHashMap<>();
+    private volatile Queue<UserFeedEvent> feed = new ConcurrentLinkedQueue<>();
+    private volatile BufferedWriter journal;
+    private long segment;
+    private ScheduledExecutorService flusher;
+    private volatile boolean running;
+
+    public LikeWriteBuffer(JdbcTemplate jdbc,
+                           PlatformTransactionManager transactionManager,
+                           LikeIndex likeIndex,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.flush-ms:200}") long flushMillis,
+                           @Value("${filmorate.likes.write-behind.flush-size:1000}") int flushSize,
+                           @Value("${filmorate.likes.write-behind.at-most-once:false}") boolean atMostOnce,
+                           @Value("${filmorate.likes.write-behind.journal-dir:./db/likes-journal}") String journalDir) {
+        this.jdbc = jdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.likeIndex = likeIndex;
+        this.enabled = enabled;
+        this.flushMillis = flushMillis;
+        this.flushSize = flushSize;
+        this.atMostOnce = atMostOnce;
+        this.journalDir = Path.of(journalDir);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Проигрывание журнала прошлого запуска до начала приёма запросов: веб-сервер стартует в более поздней фазе,
+    // а слушатели LikeChangedEvent уже зарегистрированы и получают изменения индекса
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!atMostOnce) {
+            replayJournal();
+            openSegment(lastSegment() + 1);
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "like-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        running = true;
+        log.info("Отложенная запись лайков включена: сброс каждые {} мс или по {} записей, {}",
+                flushMillis, flushSize, atMostOnce ? "без журнала (at-most-once)" : "журнал " + journalDir);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        closeSegment();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    // Лайк ставится в резидентном индексе и попадает в буфер; false - лайк уже стоит.
+    // Индекс и буфер меняются под одной блокировкой, чтобы последнее изменение пары в буфере
+    // совпадало с состоянием индекса
+    public boolean addLike(int userId, int filmId, long likedAt) {
+        synchronized (changeLock) {
+            if (!likeIndex.addLike(userId, filmId, likedAt)) {
+                return false;
+            }
+            enqueue(new LikeChange(userId, filmId, true, likedAt), null);
+            return true;
+        }
+    }
+
+    // false - лайка нет
+    public boolean removeLike(int userId, int filmId) {
+        synchronized (changeLock) {
+            if (!likeIndex.removeLike(userId, filmId)) {
+                return false;
+            }
+            enqueue(new LikeChange(userId, filmId, false, 0), null);
+            return true;
+        }
+    }
+
+    public void addEvent(UserFeedEvent event) {
+        enqueue(null, event);
+    }
+
+    private void enqueue(LikeChange change, UserFeedEvent event) {
+        swapLock.readLock().lock();
+        try {
+            // Запись в журнал раньше буфера: подтверждённое клиенту изменение уже есть на диске
+            appendToJournal(change != null ? format(change) : format(event));
+            if (change != null) {
+                likes.put(key(change.userId(), change.filmId()), change);
+            } else {
+                feed.add(event);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        if (likes.size() + feed.size() >= flushSize && flusher != null && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    // Сброс накопленных изменений в базу. Вызывается планировщиком; публичный для тестов и ручного сброса
+    public synchronized void flush() {
+        flushRequested.set(false);
+        List<LikeChange> changes;
+        List<UserFeedEvent> events;
+        long closedSegment;
+        swapLock.writeLock().lock();
+        try {
+            if (likes.isEmpty() && feed.isEmpty()) {
+                return;
+            }
+            changes = new ArrayList<>(likes.values());
+            events = new ArrayList<>(feed);
+            likes = new ConcurrentHashMap<>();
+            feed = new ConcurrentLinkedQueue<>();
+            closedSegment = segment;
+            if (journal != null) {
+                closeSegment();
+                openSegment(segment + 1);
+            }
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        try {
+            compensate(write(changes, events));
+        } catch (DataAccessException e) {
+            // База недоступна: записи возвращаются в буфер (более новые изменения тех же пар важнее),
+            // сегменты журнала остаются до следующего успешного сброса
+            requeue(changes, events);
+            throw e;
+        }
+        deleteSegmentsUpTo(closedSegment);
+        log.debug("Сброшено {} изменений лайков и {} событий ленты", changes.size(), events.size());
+    }
+
+    // Отклонённый базой лайк уже виден в резидентном индексе - он убирается и оттуда. Под той же блокировкой,
+    // что и приём лайков: если пару успели изменить после перестановки буфера, индекс отражает более новое
+    // изменение, и его не трогаем
+    private void compensate(List<LikeChange> rejected) {
+        synchronized (changeLock) {
+            for (LikeChange change : rejected) {
+                if (change.added() && !likes.containsKey(key(change.userId(), change.filmId()))) {
+                    likeIndex.removeLike(change.userId(), change.filmId());
+                }
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ошибка при сбросе отложенных лайков: {}", e.getMessage());
+        }
+    }
+
+    // Запись пачки одной транзакцией; возвращает лайки, которые база отклонила
+    private List<LikeChange> write(List<LikeChange> changes, List<UserFeedEvent> events) {
+        changes.sort(Comparator.comparingInt(LikeChange::userId).thenComparingInt(LikeChange::filmId));
+        try {
+            transaction.executeWithoutResult(status -> writeBatch(changes, events));
+            return List.of();
+        } catch (DataIntegrityViolationException e) {
+            // Пачка упала на одной записи (например, лайк несуществующего пользователя):
+            // записи применяются по одной, отклонённые пропускаются
+            log.warn("Пачка отложенных лайков отклонена ({}), запись по одной", e.getMessage());
+            List<LikeChange> rejected = new ArrayList<>();
+            for (LikeChange change : changes) {
+                try {
+                    transaction.executeWithoutResult(status -> writeBatch(List.of(change), List.of()));
+                } catch (DataIntegrityViolationException single) {
+                    log.warn("Лайк пользователя {} фильму {} отклонён базой", change.userId(), change.filmId());
+                    rejected.add(change);
+                }
+            }
+            // Событие ленты об отклонённом лайке описывало бы лайк, которого нет в базе
+            Set<Long> rejectedKeys = rejected.stream()
+                    .map(change -> key(change.userId(), change.filmId()))
+                    .collect(Collectors.toSet());
+            for (UserFeedEvent event : events) {
+                if ("LIKE".equals(event.getEventType()) && "ADD".equals(event.getOperation())
+                        && rejectedKeys.contains(key(event.getUserId(), event.getEntityId()))) {
+                    log.warn("Событие ленты {} пропущено вместе с отклонённым лайком", event);
+                    continue;
+                }
+                try {
+                    transaction.executeWithoutResult(status -> writeBatch(List.of(), List.of(event)));
+                } catch (DataIntegrityViolationException single) {
+                    log.warn("Событие ленты {} отклонено базой", event);
+                }
+            }
+            return rejected;
+        }
+    }
+
+    private void writeBatch(List<LikeChange> changes, List<UserFeedEvent> events) {
+        List<LikeChange> added = new ArrayList<>();
+        List<LikeChange> removed = new ArrayList<>();
+        for (LikeChange change : changes) {
+            if (change.added()) {
+                added.add(change);
+            } else {
+                removed.add(change);
+            }
+        }
+        // Сдвиг счётчика по фильмам: только строки, которые MERGE действительно вставил, а DELETE удалил,
+        // поэтому повторно проигранные из журнала изменения счётчик не сдвигают
+        Map<Integer, Integer> deltas = new TreeMap<>();
+        if (!added.isEmpty()) {
+            int[] inserted = jdbc.batchUpdate(LikeDbStorage.MERGE_LIKE, added.stream()
+                    .map(change -> new Object[]{change.userId(), change.filmId(), change.likedAt()})
+                    .toList());
+            countChanged(added, inserted, 1, deltas);
+        }
+        if (!removed.isEmpty()) {
+            int[] deleted = jdbc.batchUpdate("DELETE FROM film_likes WHERE user_id = ? AND film_id = ?", removed.stream()
+                    .map(change -> new Object[]{change.userId(), change.filmId()})
+                    .toList());
+            countChanged(removed, deleted, -1, deltas);
+        }
+        if (!deltas.isEmpty()) {
+            jdbc.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE id = ?", deltas.entrySet().stream()
+                    .filter(delta -> delta.getValue() != 0)
+                    .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                    .toList());
+        }
+        if (!events.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO user_feed (user_id, event_type, operation, entity_id, timestamp) VALUES (?, ?, ?, ?, ?)",
+                    events.stream().map(event -> new Object[]{event.getUserId(), event.getEventType(),
+                            event.getOperation(), event.getEntityId(), event.getTimestamp()}).toList());
+        }
+    }
+
+    private static void countChanged(List<LikeChange> changes, int[] rows, int sign, Map<Integer, Integer> deltas) {
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] > 0) {
+                deltas.merge(changes.get(i).filmId(), sign, Integer::sum);
+            }
+        }
+    }
+
+    private void requeue(List<LikeChange> changes, List<UserFeedEvent> events) {
+        swapLock.writeLock().lock();
+        try {
+            for (LikeChange change : changes) {
+                likes.putIfAbsent(key(change.userId(), change.filmId()), change);
+            }
+            Queue<UserFeedEvent> restored = new ConcurrentLinkedQueue<>(events);
+            restored.addAll(feed);
+            feed = restored;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    // Применение сегментов, оставшихся от прошлого запуска: в базу одной транзакцией и в резидентный индекс
+    void replayJournal() {
+        List<UserFeedEvent> events = new ArrayList<>();
+        Map<Long, LikeChange> latest = new LinkedHashMap<>();
+        List<Path> segments = segments();
+        for (Path path : segments) {
+            try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+                lines.forEach(line -> parse(line, latest, events));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось прочитать журнал лайков " + path, e);
+            }
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+        List<LikeChange> changes = new ArrayList<>(latest.values());
+        changes.removeAll(write(changes, events));
+        for (LikeChange change : changes) {
+            if (change.added()) {
+                likeIndex.addLike(change.userId(), change.filmId(), change.likedAt());
+            } else {
+                likeIndex.removeLike(change.userId(), change.filmId());
+            }
+        }
+        segments.forEach(LikeWriteBuffer::delete);
+        log.info("Журнал отложенных лайков проигран: {} изменений лайков, {} событий ленты", changes.size(), events.size());
+    }
+
+    private static void parse(String line, Map<Long, LikeChange> latest, List<UserFeedEvent> events) {
+        String[] fields = line.split("\t");
+        try {
+            if (fields[0].equals("L") && fields.length == 5) {
+                LikeChange change = new LikeChange(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                        fields[3].equals("1"), Long.parseLong(fields[4]));
+                latest.put(key(change.userId(), change.filmId()), change);
+            } else if (fields[0].equals("F") && fields.length == 6) {
+                events.add(new UserFeedEvent(0, Integer.parseInt(fields[1]), fields[2], fields[3],
+                        Integer.parseInt(fields[4]), Long.parseLong(fields[5])));
+            } else {
+                log.warn("Пропущена повреждённая строка журнала лайков: {}", line);
+            }
+        } catch (NumberFormatException e) {
+            // Последняя строка могла не дописаться при падении процесса
+            log.warn("Пропущена повреждённая строка журнала лайков: {}", line);
+        }
+    }
+
+    private static String format(LikeChange change) {
+        return "L\t" + change.userId() + "\t" + change.filmId() + "\t" + (change.added() ? 1 : 0) + "\t" + change.likedAt();
+    }
+
+    private static String format(UserFeedEvent event) {
+        return "F\t" + event.getUserId() + "\t" + event.getEventType() + "\t" + event.getOperation() + "\t" +
+                event.getEntityId() + "\t" + event.getTimestamp();
+    }
+
+    private static long key(int userId, int filmId) {
+        return ((long) userId << 32) | (filmId & 0xFFFFFFFFL);
+    }
+
+    private void appendToJournal(String line) {
+        BufferedWriter writer = journal;
+        if (writer == null) {
+            return;
+        }
+        // Строка целиком уходит в файл до подтверждения: переживает падение процесса, но не питания
+        synchronized (writer) {
+            try {
+                writer.write(line);
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать журнал лайков", e);
+            }
+        }
+    }
+
+    private void openSegment(long number) {
+        try {
+            Files.createDirectories(journalDir);
+            segment = number;
+            journal = Files.newBufferedWriter(segmentPath(number), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал лайков в " + journalDir, e);
+        }
+    }
+
+    private void closeSegment() {
+        BufferedWriter writer = journal;
+        if (writer == null) {
+            return;
+        }
+        journal = null;
+        synchronized (writer) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Не удалось закрыть сегмент журнала лайков: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void deleteSegmentsUpTo(long number) {
+        for (Path path : segments()) {
+            if (segmentNumber(path) <= number && segmentNumber(path) != segment) {
+                delete(path);
+            }
+        }
+    }
+
+    private List<Path> segments() {
+        if (!Files.isDirectory(journalDir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted(Comparator.comparingLong(LikeWriteBuffer::segmentNumber))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать каталог журнала лайков " + journalDir, e);
+        }
+    }
+
+    private long lastSegment() {
+        List<Path> segments = segments();
+        return segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1));
+    }
+
+    private Path segmentPath(long number) {
+        return journalDir.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить сегмент журнала лайков {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.util.List;
 @Qualifier("MPADbStorage")
 public class MPADbStorage implements MPAStorage {
     private JdbcTemplate jdbc;
+    private ReferenceDataCache referenceCache;
 
     @Override
     public MPARating addRating(MPARating mpaRating) {
@@ -31,6 +32,7 @@ public class MPADbStorage implements MPAStorage {
             ps.setString(1, mpaRating.getName());
             return ps;
         }, keyHolder);
+        referenceCache.reloadMpaRatings();
         return mpaRating;
     }
 
@@ -74,6 +76,7 @@ public class MPADbStorage implements MPAStorage {
         String sql = "DELETE FROM mpa_ratings WHERE id = ?";
         int rowsAffected;
         rowsAffected = jdbc.update(sql, id);
+        referenceCache.reloadMpaRatings();
         return rowsAffected;
     }
 }
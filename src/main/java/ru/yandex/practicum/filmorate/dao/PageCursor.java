@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Курсор keyset-пагинации: ключ сортировки последней отданной строки, закодированный в base64url.
+// Следующая страница выбирается условием "ключ больше курсора" по индексу, а не OFFSET,
+// поэтому глубокие страницы стоят столько же, сколько первая
+final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    static String encode(long... keys) {
+        String joined = Arrays.stream(keys)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(":"));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Ключ из parts чисел; курсор, выданный другим списком или испорченный клиентом, отклоняется
+    static long[] decode(String cursor, int parts) {
+        try {
+            String joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            long[] keys = Arrays.stream(joined.split(":")).mapToLong(Long::parseLong).toArray();
+            if (keys.length != parts) {
+                throw new IncorrectParameterException("Некорректный курсор: " + cursor);
+            }
+            return keys;
+        } catch (IllegalArgumentException e) {
+            throw new IncorrectParameterException("Некорректный курсор: " + cursor);
+        }
+    }
+
+    // rows выбраны с LIMIT limit + 1: лишняя строка означает, что следующая страница есть
+    static <T> Page<T> page(List<T> rows, int limit, Function<T, long[]> sortKey) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new Page<>(items, encode(sortKey.apply(items.get(limit - 1))));
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.DirectorChangedEvent;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPARating;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Резидентная копия справочников MPA_Ratings, genres и directors для проверки ссылок и подстановки имён
+// при записи фильмов без обращения к базе.
+// Каждый справочник - неизменяемая карта за volatile-ссылкой: читатели берут текущий снимок без блокировок,
+// изменение собирает новую карту и публикует её целиком (copy-on-write).
+// Рейтинги и жанры перечитываются после изменений в MPADbStorage и GenreDbStorage,
+// режиссеры обновляются по DirectorChangedEvent.
+// Отдаются копии объектов: фильм, в который подставлен жанр или режиссер, не может изменить справочник
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+    private final JdbcTemplate jdbc;
+
+    private volatile Map<Integer, MPARating> mpaRatings = Map.of();
+    private volatile Map<Integer, Genre> genres = Map.of();
+    private volatile Map<Integer, Director> directors = Map.of();
+
+    @PostConstruct
+    public void load() {
+        reloadMpaRatings();
+        reloadGenres();
+        reloadDirectors();
+        log.info("Справочники загружены: {} рейтингов MPA, {} жанров, {} режиссеров",
+                mpaRatings.size(), genres.size(), directors.size());
+    }
+
+    public void reloadMpaRatings() {
+        Map<Integer, MPARating> loaded = new HashMap<>();
+        jdbc.query("SELECT MPARating_id, MPA_Rating_name FROM MPA_Ratings", rs -> {
+            loaded.put(rs.getInt("MPARating_id"), new MPARating(rs.getInt("MPARating_id"), rs.getString("MPA_Rating_name")));
+        });
+        mpaRatings = Map.copyOf(loaded);
+    }
+
+    public void reloadGenres() {
+        Map<Integer, Genre> loaded = new HashMap<>();
+        jdbc.query("SELECT genre_id, genre_name FROM genres", rs -> {
+            loaded.put(rs.getInt("genre_id"), new Genre(rs.getInt("genre_id"), rs.getString("genre_name")));
+        });
+        genres = Map.copyOf(loaded);
+    }
+
+    public void reloadDirectors() {
+        Map<Integer, Director> loaded = new HashMap<>();
+        jdbc.query("SELECT id, name FROM directors", rs -> {
+            loaded.put(rs.getInt("id"), new Director(rs.getInt("id"), rs.getString("name")));
+        });
+        directors = Map.copyOf(loaded);
+    }
+
+    @EventListener
+    public synchronized void onDirectorChanged(DirectorChangedEvent event) {
+        Map<Integer, Director> updated = new HashMap<>(directors);
+        if (event.isRemoved()) {
+            updated.remove(event.directorId());
+        } else {
+            updated.put(event.directorId(), new Director(event.directorId(), event.director().getName()));
+        }
+        directors = Map.copyOf(updated);
+    }
+
+    // Копия рейтинга или null, если такого рейтинга нет
+    public MPARating getMpaRating(int id) {
+        MPARating rating = mpaRatings.get(id);
+        return rating == null ? null : new MPARating(rating.getId(), rating.getName());
+    }
+
+    public Genre getGenre(int id) {
+        Genre genre = genres.get(id);
+        return genre == null ? null : new Genre(genre.getId(), genre.getName());
+    }
+
+    public Director getDirector(int id) {
+        Director director = directors.get(id);
+        return director == null ? null : new Director(director.getId(), director.getName());
+    }
+}
@@ -6,10 +6,12 @@
     import org.springframework.stereotype.Repository;
     import ru.yandex.practicum.filmorate.exceptions.EntityNotFoundException;
     import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+    import ru.yandex.practicum.filmorate.model.Page;
     import ru.yandex.practicum.filmorate.model.Review;
 
     import java.sql.ResultSet;
     import java.sql.SQLException;
+    import java.util.ArrayList;
     import java.util.List;
 
     @Component
@@ -84,6 +86,27 @@
             return jdbcTemplate.query(sql, new ReviewRowMapper(), params);
         }
 
+        // Страница отзывов по убыванию полезности; review_id делает ключ сортировки уникальным
+        public Page<Review> getReviewsPage(Integer filmId, String cursor, int limit) {
+            List<Object> params = new ArrayList<>();
+            List<String> conditions = new ArrayList<>();
+            if (filmId != null) {
+                conditions.add("film_id = ?");
+                params.add(filmId);
+            }
+            if (cursor != null) {
+                long[] key = PageCursor.decode(cursor, 2);
+                conditions.add("(useful < ? OR (useful = ? AND review_id > ?))");
+                params.addAll(List.of(key[0], key[0], key[1]));
+            }
+            params.add(limit + 1L);
+            String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+            String sql = "SELECT * FROM reviews" + where + " ORDER BY useful DESC, review_id ASC LIMIT ?";
+
+            List<Review> reviews = jdbcTemplate.query(sql, new ReviewRowMapper(), params.toArray());
+            return PageCursor.page(reviews, limit, review -> new long[]{review.getUseful(), review.getReviewId()});
+        }
+
         public void addLike(Integer reviewId, Integer userId) {
             if (!existsById(reviewId)) {
                 throw new EntityNotFoundException("Review with ID " + reviewId + " not found.");
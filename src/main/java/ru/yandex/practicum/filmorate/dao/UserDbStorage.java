@@ -8,24 +8,33 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dao.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Qualifier("userDbStorage")
 @Repository
 @AllArgsConstructor
 @Slf4j
 public class UserDbStorage implements UserStorage {
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     protected final JdbcTemplate jdbc;
+    private final LikeIndex likeIndex;
 
     @Override
     public User create(User user) {
@@ -94,6 +103,56 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    @Override
+    public Page<User> findPage(String cursor, int limit) {
+        long afterId = cursor == null ? 0 : PageCursor.decode(cursor, 1)[0];
+        String sql = "SELECT id, name, email, login, birthday FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        List<User> users = jdbc.query(sql, (rs, rowNum) -> new User(
+                rs.getInt("id"),
+                rs.getString("email"),
+                rs.getString("login"),
+                rs.getString("name"),
+                rs.getDate("birthday").toLocalDate(),
+                new HashSet<>()
+        ), afterId, limit + 1L);
+        return PageCursor.page(users, limit, user -> new long[]{user.getId()});
+    }
+
+    @Override
+    public void streamAll(Consumer<List<User>> action) {
+        String sql = "SELECT id, name, email, login, birthday FROM users ORDER BY id ASC";
+        // Однонаправленный курсор с fetch size: пользователи отдаются пачками, не собираясь в один список
+        List<User> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        jdbc.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_CHUNK_SIZE);
+            return ps;
+        }, rs -> {
+            chunk.add(new User(
+                    rs.getInt("id"),
+                    rs.getString("email"),
+                    rs.getString("login"),
+                    rs.getString("name"),
+                    rs.getDate("birthday").toLocalDate(),
+                    new HashSet<>()
+            ));
+            if (chunk.size() == STREAM_CHUNK_SIZE) {
+                action.accept(new ArrayList<>(chunk));
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            action.accept(chunk);
+        }
+    }
+
+    @Override
+    public int[] findAllIds() {
+        return jdbc.queryForList("SELECT id FROM users ORDER BY id", Integer.class).stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
     @Override
     public Collection<User> findAll() {
         String sql = "SELECT id, name, email, login, birthday FROM users ORDER BY id ASC";
@@ -116,8 +175,13 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional
     public void deleteUserById(Integer id) {
         try {
+            // Лайки удаляемого пользователя больше не учитываются в счётчиках фильмов
+            String decrementLikesSql = "UPDATE films SET likes_count = likes_count - 1 " +
+                    "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)";
+            jdbc.update(decrementLikesSql, id);
 
             String deleteUserSql = "DELETE FROM users WHERE id = ?";
             int rowsAffected = jdbc.update(deleteUserSql, id);
@@ -125,12 +189,14 @@ public class UserDbStorage implements UserStorage {
             String deleteLikesSql = "DELETE FROM film_likes WHERE user_id = ?";
             jdbc.update(deleteLikesSql, id);
 
-            String deleteFriendshipsSql = "DELETE FROM friendships WHERE user_id = ? OR friend_id = ?";
-            jdbc.update(deleteFriendshipsSql, id, id);
+            // Два запроса вместо OR: каждый идёт по своему индексу, а не полным просмотром friendships
+            jdbc.update("DELETE FROM friendships WHERE user_id = ?", id);
+            jdbc.update("DELETE FROM friendships WHERE friend_id = ?", id);
 
             if (rowsAffected == 0) {
                 throw new NotFoundException("Пользователь с id " + id + " не найден");
             }
+            AfterCommit.run(() -> likeIndex.removeUser(id));
         }  catch (DataAccessException e) {
             throw new RuntimeException("Ошибка при удалении пользователя " + id + ": " + e.getMessage(), e);
         }
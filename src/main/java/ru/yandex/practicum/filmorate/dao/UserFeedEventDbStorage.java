@@ -7,9 +7,11 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.dao.mappers.UserFeedEventRowMapper;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.UserFeedEvent;
 
 import java.sql.PreparedStatement;
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
@@ -25,6 +27,22 @@ public class UserFeedEventDbStorage {
         return jdbc.query(sql, new UserFeedEventRowMapper(), userId);
     }
 
+    // Страница ленты в том же порядке, что и getUserFeed; event_id различает события с одинаковым временем
+    public Page<UserFeedEvent> getUserFeedPage(int userId, String cursor, int limit) {
+        List<Object> params = new ArrayList<>(List.of(userId));
+        String afterCursor = "";
+        if (cursor != null) {
+            long[] key = PageCursor.decode(cursor, 2);
+            afterCursor = " AND (timestamp > ? OR (timestamp = ? AND event_id > ?))";
+            params.addAll(List.of(key[0], key[0], key[1]));
+        }
+        params.add(limit + 1L);
+        String sql = "SELECT * FROM user_feed WHERE user_id = ?" + afterCursor + " ORDER BY timestamp ASC, event_id ASC LIMIT ?";
+
+        List<UserFeedEvent> events = jdbc.query(sql, new UserFeedEventRowMapper(), params.toArray());
+        return PageCursor.page(events, limit, event -> new long[]{event.getTimestamp(), event.getEventId()});
+    }
+
     public void addUserEvent(UserFeedEvent event) {
         String sql = "INSERT INTO user_feed (user_id, event_type, operation, entity_id, timestamp) VALUES (?, ?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
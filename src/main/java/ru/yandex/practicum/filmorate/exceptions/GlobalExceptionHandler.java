@@ -124,6 +124,12 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(new ErrorResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(IncorrectParameterException.class)
+    public ResponseEntity<ErrorResponse> handleIncorrectParameterException(Exception e) {
+        log.error("Некорректный параметр запроса");
+        return new ResponseEntity<>(new ErrorResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
     @Getter
     static class ErrorResponse {
         private final String error;
@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.RecommendationScorer.ScoredFilm;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static ru.yandex.practicum.filmorate.index.RecommendationScorer.FILM_ORDER;
+import static ru.yandex.practicum.filmorate.index.RecommendationScorer.drainDescending;
+import static ru.yandex.practicum.filmorate.index.RecommendationScorer.offer;
+
+// Таблица "фильм -> top-M фильмов, которые чаще всего лайкают вместе с ним" (косинусная мера по совместным лайкам).
+// Хранятся только сами списки: не больше M соседей на фильм, без счётчиков всех пар.
+// Лайк (u, f) меняет число совместных лайков пар f с фильмами u, поэтому на записи эти фильмы только
+// помечаются изменёнными, а их списки пересчитываются по расписанию через поклонников фильма из LikeIndex.
+// Рекомендации только читают готовые списки, косинус считается при чтении по текущему числу лайков.
+// Между пересчётами списки отстают от лайков не больше чем на период расписания.
+// При выключенных item-based рекомендациях индекс ничего не строит и не слушает события
+@Slf4j
+@Component
+public class CoLikeIndex {
+
+    // coLikes[i] - число пользователей, лайкнувших и фильм списка, и filmIds[i]
+    public record Neighbours(int[] filmIds, int[] coLikes) {
+
+        int indexOf(int filmId) {
+            for (int i = 0; i < filmIds.length; i++) {
+                if (filmIds[i] == filmId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final Neighbours EMPTY = new Neighbours(new int[0], new int[0]);
+
+    private final LikeIndex likeIndex;
+    private final boolean enabled;
+    private final int maxNeighbours;
+    private final Map<Integer, Neighbours> neighboursByFilm = new ConcurrentHashMap<>();
+    // Фильмы, чьи списки устарели с последнего пересчёта
+    private final Set<Integer> changed = ConcurrentHashMap.newKeySet();
+
+    public CoLikeIndex(LikeIndex likeIndex,
+                       @Value("${filmorate.recommendations.item-based:false}") boolean enabled,
+                       @Value("${filmorate.recommendations.item.neighbours:20}") int maxNeighbours) {
+        this.likeIndex = likeIndex;
+        this.enabled = enabled;
+        this.maxNeighbours = maxNeighbours;
+    }
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        neighboursByFilm.clear();
+        changed.clear();
+        if (!enabled) {
+            return;
+        }
+        likeIndex.forEachUser((userId, films) -> {
+            for (int filmId : films) {
+                changed.add(filmId);
+            }
+        });
+        refreshChanged();
+        log.info("Индекс совместных лайков построен: {} фильмов", neighboursByFilm.size());
+    }
+
+    // Событие несёт фильмы пользователя сразу после изменения: изменились пары фильма со всеми ними
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        changed.add(event.filmId());
+        for (int otherFilmId : event.userFilms()) {
+            changed.add(otherFilmId);
+        }
+    }
+
+    // Лайки удалённого фильма снимает LikeIndex.removeFilm, здесь фильм сразу убирается из готовых списков
+    @EventListener
+    public synchronized void onFilmChanged(FilmChangedEvent event) {
+        if (!enabled || !event.isRemoved()) {
+            return;
+        }
+        neighboursByFilm.remove(event.filmId());
+        changed.remove(event.filmId());
+        // Освободившееся место в списке может занять фильм, не попавший в него раньше
+        neighboursByFilm.replaceAll((filmId, neighbours) -> {
+            Neighbours rest = without(neighbours, event.filmId());
+            if (rest != neighbours) {
+                changed.add(filmId);
+            }
+            return rest;
+        });
+        neighboursByFilm.values().removeIf(neighbours -> neighbours.filmIds().length == 0);
+    }
+
+    // Пересчёт списков фильмов, изменившихся с прошлого запуска. Лайки, пришедшие во время пересчёта,
+    // снова помечают фильм и попадут в следующий запуск
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.item.refresh-ms:60000}")
+    public synchronized void refreshChanged() {
+        if (!enabled || changed.isEmpty()) {
+            return;
+        }
+        int count = 0;
+        for (Integer filmId : changed) {
+            changed.remove(filmId);
+            refresh(filmId);
+            count++;
+        }
+        log.debug("Пересчитаны соседи {} фильмов", count);
+    }
+
+    public Neighbours getNeighbours(int filmId) {
+        return neighboursByFilm.getOrDefault(filmId, EMPTY);
+    }
+
+    // Возвращает не более limit идентификаторов фильмов, от наиболее к наименее рекомендуемому
+    public List<Integer> recommend(int userId, int limit) {
+        int[] userLikedFilms = likeIndex.getFilms(userId);
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int likedFilmId : userLikedFilms) {
+            Neighbours neighbours = getNeighbours(likedFilmId);
+            double likedNorm = norm(likedFilmId);
+            for (int i = 0; i < neighbours.filmIds().length; i++) {
+                int filmId = neighbours.filmIds()[i];
+                if (Arrays.binarySearch(userLikedFilms, filmId) < 0) {
+                    scores.merge(filmId, neighbours.coLikes()[i] / (likedNorm * norm(filmId)), Double::sum);
+                }
+            }
+        }
+
+        PriorityQueue<ScoredFilm> best = new PriorityQueue<>(FILM_ORDER);
+        scores.forEach((filmId, score) -> offer(best, new ScoredFilm(filmId, score), limit, FILM_ORDER));
+        List<Integer> films = drainDescending(best).stream()
+                .map(ScoredFilm::filmId)
+                .toList();
+        log.debug("Пользователь {}: {} кандидатов по соседним фильмам, {} рекомендаций",
+                userId, scores.size(), films.size());
+        return films;
+    }
+
+    // Собирает список соседей фильма: совместные лайки считаются по фильмам его поклонников
+    private void refresh(int filmId) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int userId : likeIndex.getUsers(filmId)) {
+            for (int otherFilmId : likeIndex.getFilms(userId)) {
+                if (otherFilmId != filmId) {
+                    counts.merge(otherFilmId, 1, Integer::sum);
+                }
+            }
+        }
+        PriorityQueue<ScoredFilm> best = new PriorityQueue<>(FILM_ORDER);
+        counts.forEach((otherFilmId, count) ->
+                offer(best, new ScoredFilm(otherFilmId, count / norm(otherFilmId)), maxNeighbours, FILM_ORDER));
+        List<ScoredFilm> ordered = drainDescending(best);
+        if (ordered.isEmpty()) {
+            neighboursByFilm.remove(filmId);
+            return;
+        }
+        int[] filmIds = new int[ordered.size()];
+        int[] filmCoLikes = new int[ordered.size()];
+        for (int i = 0; i < ordered.size(); i++) {
+            filmIds[i] = ordered.get(i).filmId();
+            filmCoLikes[i] = counts.get(filmIds[i]);
+        }
+        neighboursByFilm.put(filmId, new Neighbours(filmIds, filmCoLikes));
+    }
+
+    private double norm(int filmId) {
+        return Math.sqrt(Math.max(1, likeIndex.getLikesCount(filmId)));
+    }
+
+    private static Neighbours without(Neighbours neighbours, int filmId) {
+        int position = neighbours.indexOf(filmId);
+        if (position < 0) {
+            return neighbours;
+        }
+        int[] filmIds = new int[neighbours.filmIds().length - 1];
+        int[] coLikes = new int[filmIds.length];
+        System.arraycopy(neighbours.filmIds(), 0, filmIds, 0, position);
+        System.arraycopy(neighbours.filmIds(), position + 1, filmIds, position, filmIds.length - position);
+        System.arraycopy(neighbours.coLikes(), 0, coLikes, 0, position);
+        System.arraycopy(neighbours.coLikes(), position + 1, coLikes, position, coLikes.length - position);
+        return new Neighbours(filmIds, coLikes);
+    }
+}
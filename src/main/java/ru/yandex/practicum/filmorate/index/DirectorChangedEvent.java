@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.model.Director;
+
+// Публикуется хранилищем режиссёров после создания, обновления и удаления режиссёра.
+// director - сохранённое состояние, null для удалённого
+public record DirectorChangedEvent(int directorId, Director director) {
+
+    public boolean isRemoved() {
+        return director == null;
+    }
+}
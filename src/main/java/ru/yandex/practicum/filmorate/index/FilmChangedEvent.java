@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+// Публикуется хранилищем фильмов после создания, обновления и удаления фильма.
+// film - сохранённое состояние фильма, null для удалённого
+public record FilmChangedEvent(int filmId, Film film) {
+
+    public boolean isRemoved() {
+        return film == null;
+    }
+}
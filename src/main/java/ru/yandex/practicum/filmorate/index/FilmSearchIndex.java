@@ -0,0 +1,346 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.model.Director;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Поиск фильмов по подстроке в названии и/или в имени режиссёра без обращения к базе.
+// Названия и имена лежат в двух триграммных индексах, связь режиссёр -> фильмы хранится отдельно,
+// чтобы переименование режиссёра не затрагивало индексы его фильмов.
+// Результат ранжируется по числу лайков из LikeIndex, при равенстве - по убыванию id.
+// Для подсказок при наборе те же названия и имена разложены в PrefixTrie: ключами служат все окончания
+// текста, начинающиеся с границы слова, так что префикс "rings" находит "The Lord of the Rings".
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private final JdbcTemplate jdbc;
+    private final LikeIndex likeIndex;
+    private final TrigramIndex titles = new TrigramIndex();
+    private final TrigramIndex directorNames = new TrigramIndex();
+    private final Map<Integer, int[]> filmsByDirector = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> directorsByFilm = new ConcurrentHashMap<>();
+    private final PrefixTrie suggestions;
+
+    public FilmSearchIndex(JdbcTemplate jdbc,
+                           LikeIndex likeIndex,
+                           @Value("${filmorate.search.suggest.top-k:10}") int suggestionsTopSize) {
+        this.jdbc = jdbc;
+        this.likeIndex = likeIndex;
+        this.suggestions = new PrefixTrie(suggestionsTopSize, likeIndex::getLikesCount);
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<Integer, String> films = new HashMap<>();
+        jdbc.query("SELECT id, name FROM films", rs -> {
+            films.put(rs.getInt("id"), rs.getString("name"));
+        });
+        Map<Integer, String> directors = new HashMap<>();
+        jdbc.query("SELECT id, name FROM directors", rs -> {
+            directors.put(rs.getInt("id"), rs.getString("name"));
+        });
+        Map<Integer, Set<Integer>> directorFilms = new HashMap<>();
+        jdbc.query("SELECT film_id, directors_id FROM film_directors", rs -> {
+            directorFilms.computeIfAbsent(rs.getInt("directors_id"), id -> new HashSet<>()).add(rs.getInt("film_id"));
+        });
+        rebuild(films, directors, directorFilms);
+        log.info("Поисковый индекс построен: {} фильмов, {} режиссёров", titles.size(), directorNames.size());
+    }
+
+    public synchronized void rebuild(Map<Integer, String> films, Map<Integer, String> directors,
+                                     Map<Integer, Set<Integer>> directorFilms) {
+        titles.rebuild(films);
+        directorNames.rebuild(directors);
+        filmsByDirector.clear();
+        directorsByFilm.clear();
+        Map<Integer, Set<Integer>> filmDirectors = new HashMap<>();
+        directorFilms.forEach((directorId, filmIds) -> {
+            filmsByDirector.put(directorId, toSortedArray(filmIds));
+            filmIds.forEach(filmId -> filmDirectors.computeIfAbsent(filmId, id -> new HashSet<>()).add(directorId));
+        });
+        filmDirectors.forEach((filmId, directorIds) -> directorsByFilm.put(filmId, toSortedArray(directorIds)));
+
+        List<String> keys = new ArrayList<>();
+        List<Integer> keyFilms = new ArrayList<>();
+        for (Integer filmId : films.keySet()) {
+            for (String key : suggestKeys(filmId)) {
+                keys.add(key);
+                keyFilms.add(filmId);
+            }
+        }
+        suggestions.rebuild(keys.toArray(new String[0]), keyFilms.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @EventListener
+    public synchronized void onFilmChanged(FilmChangedEvent event) {
+        int filmId = event.filmId();
+        Set<String> oldKeys = suggestKeys(filmId);
+        Set<Integer> newDirectors = new HashSet<>();
+        if (!event.isRemoved()) {
+            titles.put(filmId, event.film().getName());
+            if (event.film().getDirectors() != null) {
+                event.film().getDirectors().stream()
+                        .map(Director::getId)
+                        .filter(Objects::nonNull)
+                        .forEach(newDirectors::add);
+            }
+        } else {
+            titles.put(filmId, null);
+        }
+        int[] oldDirectors = directorsByFilm.getOrDefault(filmId, SortedInts.EMPTY);
+        for (int directorId : oldDirectors) {
+            if (!newDirectors.contains(directorId)) {
+                int[] films = filmsByDirector.getOrDefault(directorId, SortedInts.EMPTY);
+                putOrRemove(filmsByDirector, directorId, SortedInts.remove(films, filmId));
+            }
+        }
+        for (int directorId : newDirectors) {
+            if (Arrays.binarySearch(oldDirectors, directorId) < 0) {
+                int[] films = filmsByDirector.getOrDefault(directorId, SortedInts.EMPTY);
+                filmsByDirector.put(directorId, SortedInts.insert(films, filmId));
+            }
+        }
+        putOrRemove(directorsByFilm, filmId, toSortedArray(newDirectors));
+        updateSuggestions(filmId, oldKeys);
+    }
+
+    @EventListener
+    public synchronized void onDirectorChanged(DirectorChangedEvent event) {
+        int directorId = event.directorId();
+        int[] films = filmsByDirector.getOrDefault(directorId, SortedInts.EMPTY);
+        Map<Integer, Set<String>> oldKeys = new HashMap<>();
+        for (int filmId : films) {
+            oldKeys.put(filmId, suggestKeys(filmId));
+        }
+        if (!event.isRemoved()) {
+            directorNames.put(directorId, event.director().getName());
+        } else {
+            directorNames.put(directorId, null);
+            for (int filmId : films) {
+                int[] directors = directorsByFilm.getOrDefault(filmId, SortedInts.EMPTY);
+                putOrRemove(directorsByFilm, filmId, SortedInts.remove(directors, directorId));
+            }
+            filmsByDirector.remove(directorId);
+        }
+        oldKeys.forEach(this::updateSuggestions);
+    }
+
+    // Число лайков изменилось: top-K пересчитываются только на путях к ключам этого фильма
+    @EventListener
+    public synchronized void onLikeChanged(LikeChangedEvent event) {
+        for (String key : suggestKeys(event.filmId())) {
+            suggestions.refresh(key, event.filmId());
+        }
+    }
+
+    // Не более limit фильмов, у которых название или имя режиссёра содержит слово, начинающееся с prefix,
+    // по убыванию числа лайков. limit ограничен размером top-K в узлах дерева
+    public List<Integer> suggest(String prefix, int limit) {
+        String normalized = TrigramIndex.normalize(prefix).stripLeading().replaceAll("\\s+", " ");
+        int[] top = suggestions.top(normalized);
+        List<Integer> result = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && i < limit; i++) {
+            result.add(top[i]);
+        }
+        return result;
+    }
+
+    private void updateSuggestions(int filmId, Set<String> oldKeys) {
+        Set<String> newKeys = suggestKeys(filmId);
+        for (String key : oldKeys) {
+            if (!newKeys.contains(key)) {
+                suggestions.remove(key, filmId);
+            }
+        }
+        for (String key : newKeys) {
+            if (!oldKeys.contains(key)) {
+                suggestions.add(key, filmId);
+            }
+        }
+    }
+
+    // Ключи фильма в дереве подсказок по текущему состоянию индекса
+    private Set<String> suggestKeys(int filmId) {
+        Set<String> keys = new HashSet<>();
+        addWordSuffixes(titles.text(filmId), keys);
+        for (int directorId : directorsByFilm.getOrDefault(filmId, SortedInts.EMPTY)) {
+            addWordSuffixes(directorNames.text(directorId), keys);
+        }
+        return keys;
+    }
+
+    private static void addWordSuffixes(String text, Set<String> keys) {
+        if (text == null) {
+            return;
+        }
+        String[] words = text.trim().split("\\s+");
+        for (int i = 0; i < words.length; i++) {
+            if (!words[i].isEmpty()) {
+                keys.add(String.join(" ", Arrays.asList(words).subList(i, words.length)));
+            }
+        }
+    }
+
+    // Идентификаторы фильмов, у которых query входит в название (byTitle) или в имя одного из режиссёров
+    // (byDirector), по убыванию числа лайков
+    public List<Integer> search(String query, boolean byTitle, boolean byDirector) {
+        return search(query, byTitle, byDirector, false, null, Integer.MAX_VALUE);
+    }
+
+    // То же с допуском опечаток: query может отличаться от подстроки названия или имени на несколько правок.
+    // Сначала идут фильмы с меньшим числом правок, внутри - по убыванию числа лайков
+    public List<Integer> searchFuzzy(String query, boolean byTitle, boolean byDirector) {
+        return search(query, byTitle, byDirector, true, null, Integer.MAX_VALUE);
+    }
+
+    // Страница результатов: не более limit фильмов, следующих в ранжировании за фильмом after (null - с начала).
+    // Позиция after определяется его текущим ключом (число правок, лайки, id), поэтому страницы
+    // не пересекаются и не теряют фильмы, пока лайки не меняются
+    public List<Integer> search(String query, boolean byTitle, boolean byDirector, boolean fuzzy,
+                                Integer after, int limit) {
+        LongBuffer[] hits = fuzzy
+                ? fuzzyHits(query, byTitle, byDirector)
+                : new LongBuffer[]{exactHits(query, byTitle, byDirector)};
+        int fromDistance = 0;
+        long bound = Long.MAX_VALUE;
+        if (after != null) {
+            fromDistance = distanceOf(hits, after);
+            if (fromDistance < 0) {
+                throw new IncorrectParameterException("Фильм " + after + " не входит в результаты поиска");
+            }
+            bound = rankKey(after);
+        }
+        List<Integer> result = new ArrayList<>(Math.min(limit, 64));
+        for (int distance = fromDistance; distance < hits.length && result.size() < limit; distance++) {
+            if (hits[distance] == null) {
+                continue;
+            }
+            long[] sorted = hits[distance].toArray();
+            Arrays.sort(sorted);
+            long upper = distance == fromDistance ? bound : Long.MAX_VALUE;
+            // Фильм, найденный и по названию, и по режиссёру, даёт одинаковые ключи, которые после сортировки соседние
+            for (int i = sorted.length - 1; i >= 0 && result.size() < limit; i--) {
+                if (sorted[i] < upper && (i == sorted.length - 1 || sorted[i] != sorted[i + 1])) {
+                    result.add((int) sorted[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Ключи найденных фильмов: лайки в старших битах, id - в младших; фильм может встретиться дважды
+    private LongBuffer exactHits(String query, boolean byTitle, boolean byDirector) {
+        LongBuffer keys = new LongBuffer();
+        if (byTitle) {
+            titles.search(query, filmId -> keys.add(rankKey(filmId)));
+        }
+        if (byDirector) {
+            directorNames.search(query, directorId -> {
+                for (int filmId : filmsByDirector.getOrDefault(directorId, SortedInts.EMPTY)) {
+                    keys.add(rankKey(filmId));
+                }
+            });
+        }
+        return keys;
+    }
+
+    // Ключи найденных фильмов, разложенные по числу правок: внутри буфера порядок тот же, что и в точном поиске
+    private LongBuffer[] fuzzyHits(String query, boolean byTitle, boolean byDirector) {
+        int maxEdits = fuzzyEdits(TrigramIndex.normalize(query).length());
+        Map<Integer, Integer> distances = new HashMap<>();
+        if (byTitle) {
+            titles.searchFuzzy(query, maxEdits, (filmId, distance) -> distances.merge(filmId, distance, Math::min));
+        }
+        if (byDirector) {
+            directorNames.searchFuzzy(query, maxEdits, (directorId, distance) -> {
+                for (int filmId : filmsByDirector.getOrDefault(directorId, SortedInts.EMPTY)) {
+                    distances.merge(filmId, distance, Math::min);
+                }
+            });
+        }
+        LongBuffer[] byDistance = new LongBuffer[maxEdits + 1];
+        distances.forEach((filmId, distance) -> {
+            if (byDistance[distance] == null) {
+                byDistance[distance] = new LongBuffer();
+            }
+            byDistance[distance].add(rankKey(filmId));
+        });
+        return byDistance;
+    }
+
+    private static int distanceOf(LongBuffer[] hits, int filmId) {
+        for (int distance = 0; distance < hits.length; distance++) {
+            if (hits[distance] != null && hits[distance].containsId(filmId)) {
+                return distance;
+            }
+        }
+        return -1;
+    }
+
+    // Допустимое число правок растёт с длиной запроса. Пороги выбраны так, чтобы у запроса оставалась
+    // хотя бы одна обязательная общая триграмма (|G| - 3k > 0) и кандидаты отбирались индексом, а не перебором
+    static int fuzzyEdits(int queryLength) {
+        if (queryLength < 6) {
+            return 0;
+        }
+        return queryLength <= 10 ? 1 : 2;
+    }
+
+    private long rankKey(int filmId) {
+        return ((long) likeIndex.getLikesCount(filmId) << 32) | (filmId & 0xFFFFFFFFL);
+    }
+
+    private static int[] toSortedArray(Set<Integer> values) {
+        int[] result = values.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static void putOrRemove(Map<Integer, int[]> map, int key, int[] values) {
+        if (values.length == 0) {
+            map.remove(key);
+        } else {
+            map.put(key, values);
+        }
+    }
+
+    private static class LongBuffer {
+        private long[] data = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+
+        boolean containsId(int id) {
+            for (int i = 0; i < size; i++) {
+                if ((int) data[i] == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.index;
+
+// Публикуется индексом лайков после каждого фактического изменения матрицы лайков.
+// likedAt - время поставленного (или снятого) лайка, Unix timestamp в секундах.
+// userFilms - отсортированные фильмы пользователя сразу после изменения (массив нельзя изменять): по нему
+// слушатели считают дельту, не перечитывая индекс, который к моменту обработки мог измениться снова
+public record LikeChangedEvent(int userId, int filmId, boolean added, long likedAt, int[] userFilms) {
+}
@@ -0,0 +1,325 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+// Резидентная разреженная матрица лайков пользователь × фильм.
+// Для каждого пользователя хранится отсортированный int[] лайкнутых фильмов,
+// для каждого фильма - отсортированный int[] лайкнувших пользователей.
+// Рядом с фильмами пользователя хранится long[] времени лайков (в том же порядке).
+// Массивы пользователя не изменяются после публикации (copy-on-write), массив пользователей фильма
+// растёт на месте под своей блокировкой, а читателям отдаётся его неизменяемый снимок.
+// Запись лайка блокирует только пользователя и фильм, лайки разных пользователей пишутся параллельно.
+// О каждом изменении рассылается LikeChangedEvent, по которому обновляются производные индексы.
+// События встают в очередь под блокировкой пользователя, а рассылаются уже после неё, в порядке изменений:
+// медленный слушатель не держит запись лайков других потоков.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeIndex {
+    private static final int[] EMPTY = new int[0];
+    private static final UserLikes NO_LIKES = new UserLikes(EMPTY, new long[0]);
+
+    // Фильмы пользователя и время каждого лайка; массивы публикуются только вместе
+    private record UserLikes(int[] films, long[] likedAt) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final ApplicationEventPublisher events;
+    private final Map<Integer, UserLikes> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, FilmUsers> usersByFilm = new ConcurrentHashMap<>();
+    private final Queue<LikeChangedEvent> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock publishing = new ReentrantLock();
+
+    @PostConstruct
+    public void load() {
+        IntBuffer users = new IntBuffer();
+        IntBuffer films = new IntBuffer();
+        LongBuffer likedAt = new LongBuffer();
+        String sql = "SELECT user_id, film_id, created_at FROM film_likes ORDER BY user_id, film_id";
+        jdbc.query(sql, rs -> {
+            users.add(rs.getInt("user_id"));
+            films.add(rs.getInt("film_id"));
+            likedAt.add(rs.getLong("created_at"));
+        });
+        rebuild(users.toArray(), films.toArray(), likedAt.toArray());
+        log.info("Индекс лайков загружен: {} лайков, {} пользователей, {} фильмов",
+                users.size, filmsByUser.size(), usersByFilm.size());
+    }
+
+    public void rebuild(int[] userIds, int[] filmIds) {
+        rebuild(userIds, filmIds, new long[userIds.length]);
+    }
+
+    // Полная перестройка индекса по лайкам (userIds[i], filmIds[i], likedAt[i]),
+    // отсортированным по пользователю, а внутри пользователя - по фильму. Вызывается до начала записи лайков
+    public synchronized void rebuild(int[] userIds, int[] filmIds, long[] likedAt) {
+        filmsByUser.clear();
+        usersByFilm.clear();
+
+        // Первый проход: списки фильмов пользователя собираются уже отсортированными
+        Map<Integer, Integer> filmDegrees = new HashMap<>();
+        int from = 0;
+        for (int i = 1; i <= userIds.length; i++) {
+            if (i == userIds.length || userIds[i] != userIds[from]) {
+                filmsByUser.put(userIds[from], new UserLikes(Arrays.copyOfRange(filmIds, from, i),
+                        Arrays.copyOfRange(likedAt, from, i)));
+                from = i;
+            }
+        }
+        for (int filmId : filmIds) {
+            filmDegrees.merge(filmId, 1, Integer::sum);
+        }
+
+        // Второй проход: обратный индекс фильм -> пользователи. Пользователи перебираются по возрастанию id,
+        // поэтому массивы пользователей тоже получаются отсортированными
+        Map<Integer, int[]> filmUsers = new HashMap<>();
+        Map<Integer, Integer> filled = new HashMap<>();
+        filmDegrees.forEach((filmId, degree) -> filmUsers.put(filmId, new int[degree]));
+        for (int i = 0; i < userIds.length; i++) {
+            int position = filled.merge(filmIds[i], 1, Integer::sum) - 1;
+            filmUsers.get(filmIds[i])[position] = userIds[i];
+        }
+        filmUsers.forEach((filmId, users) -> usersByFilm.put(filmId, new FilmUsers(users)));
+    }
+
+    // Возвращает отсортированный массив фильмов пользователя. Массив нельзя изменять
+    public int[] getFilms(int userId) {
+        UserLikes likes = filmsByUser.get(userId);
+        return likes == null ? EMPTY : likes.films();
+    }
+
+    // Время лайка в секундах Unix timestamp, 0 - если лайка нет
+    public long getLikedAt(int userId, int filmId) {
+        UserLikes likes = filmsByUser.get(userId);
+        if (likes == null) {
+            return 0;
+        }
+        int position = Arrays.binarySearch(likes.films(), filmId);
+        return position < 0 ? 0 : likes.likedAt()[position];
+    }
+
+    // Возвращает отсортированный массив пользователей, лайкнувших фильм. Массив нельзя изменять
+    public int[] getUsers(int filmId) {
+        FilmUsers users = usersByFilm.get(filmId);
+        return users == null ? EMPTY : users.snapshot();
+    }
+
+    public int getLikesCount(int filmId) {
+        FilmUsers users = usersByFilm.get(filmId);
+        return users == null ? 0 : users.size();
+    }
+
+    public boolean hasLike(int userId, int filmId) {
+        return Arrays.binarySearch(getFilms(userId), filmId) >= 0;
+    }
+
+    public void forEachUser(BiConsumer<Integer, int[]> action) {
+        filmsByUser.forEach((userId, likes) -> action.accept(userId, likes.films()));
+    }
+
+    public boolean addLike(int userId, int filmId) {
+        return addLike(userId, filmId, Instant.now().getEpochSecond());
+    }
+
+    public boolean addLike(int userId, int filmId, long likedAt) {
+        boolean changed = applyAdd(userId, filmId, likedAt);
+        publishPending();
+        return changed;
+    }
+
+    public boolean removeLike(int userId, int filmId) {
+        boolean changed = applyRemove(userId, filmId);
+        publishPending();
+        return changed;
+    }
+
+    // Удаление всех лайков пользователя (при удалении пользователя)
+    public void removeUser(int userId) {
+        for (int filmId : getFilms(userId)) {
+            removeLike(userId, filmId);
+        }
+    }
+
+    // Удаление всех лайков фильма (при удалении фильма)
+    public void removeFilm(int filmId) {
+        for (int userId : getUsers(filmId)) {
+            removeLike(userId, filmId);
+        }
+    }
+
+    // Пользователь меняется атомарно внутри compute, фильм - внутри вложенного compute по другой карте.
+    // Блокировки всегда берутся в порядке пользователь -> фильм, поэтому взаимоблокировок нет
+    private boolean applyAdd(int userId, int filmId, long likedAt) {
+        boolean[] changed = new boolean[1];
+        filmsByUser.compute(userId, (id, likes) -> {
+            UserLikes current = likes == null ? NO_LIKES : likes;
+            int position = Arrays.binarySearch(current.films(), filmId);
+            if (position >= 0) {
+                return likes;
+            }
+            position = -position - 1;
+            int[] films = SortedInts.insert(current.films(), filmId);
+            usersByFilm.compute(filmId, (key, users) -> {
+                FilmUsers result = users == null ? new FilmUsers(EMPTY) : users;
+                result.insert(userId);
+                return result;
+            });
+            pending.add(new LikeChangedEvent(userId, filmId, true, likedAt, films));
+            changed[0] = true;
+            return new UserLikes(films, insertAt(current.likedAt(), position, likedAt));
+        });
+        return changed[0];
+    }
+
+    private boolean applyRemove(int userId, int filmId) {
+        boolean[] changed = new boolean[1];
+        filmsByUser.computeIfPresent(userId, (id, likes) -> {
+            int position = Arrays.binarySearch(likes.films(), filmId);
+            if (position < 0) {
+                return likes;
+            }
+            long likedAt = likes.likedAt()[position];
+            int[] films = SortedInts.remove(likes.films(), filmId);
+            usersByFilm.computeIfPresent(filmId, (key, users) -> users.remove(userId) == 0 ? null : users);
+            pending.add(new LikeChangedEvent(userId, filmId, false, likedAt, films));
+            changed[0] = true;
+            return films.length == 0 ? null : new UserLikes(films, removeAt(likes.likedAt(), position));
+        });
+        return changed[0];
+    }
+
+    // Очередь разбирает один поток за раз, поэтому слушатели получают события в порядке изменений.
+    // Если очередь занята другим потоком, он разошлёт и наши события; повторная проверка после
+    // освобождения не даёт событию, добавленному в этот момент, остаться в очереди
+    private void publishPending() {
+        while (!pending.isEmpty() && publishing.tryLock()) {
+            try {
+                LikeChangedEvent event;
+                while ((event = pending.poll()) != null) {
+                    events.publishEvent(event);
+                }
+            } finally {
+                publishing.unlock();
+            }
+        }
+    }
+
+    private static long[] insertAt(long[] values, int position, long value) {
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(values, position, result, position + 1, values.length - position);
+        return result;
+    }
+
+    private static long[] removeAt(long[] values, int position) {
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, position);
+        System.arraycopy(values, position + 1, result, position, values.length - position - 1);
+        return result;
+    }
+
+    // Отсортированные пользователи фильма с запасом ёмкости. Лайк сдвигает хвост массива на месте,
+    // а новые пользователи получают растущие id, поэтому обычно просто дописываются в конец.
+    // Снимок для читателей делается при первом чтении после изменения; пока массив заполнен целиком,
+    // снимком служит он сам, и следующее изменение сначала копирует его
+    private static final class FilmUsers {
+        private int[] users;
+        private int size;
+        private int[] snapshot;
+
+        FilmUsers(int[] users) {
+            this.users = users;
+            this.size = users.length;
+            this.snapshot = users;
+        }
+
+        synchronized void insert(int userId) {
+            int position = Arrays.binarySearch(users, 0, size, userId);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == users.length || users == snapshot) {
+                users = Arrays.copyOf(users, Math.max(4, size + (size >> 1) + 1));
+            }
+            System.arraycopy(users, position, users, position + 1, size - position);
+            users[position] = userId;
+            size++;
+            snapshot = null;
+        }
+
+        // Возвращает число оставшихся пользователей
+        synchronized int remove(int userId) {
+            int position = Arrays.binarySearch(users, 0, size, userId);
+            if (position < 0) {
+                return size;
+            }
+            if (users == snapshot) {
+                users = users.clone();
+            }
+            System.arraycopy(users, position + 1, users, position, size - position - 1);
+            size--;
+            snapshot = null;
+            return size;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized int[] snapshot() {
+            if (snapshot == null) {
+                snapshot = size == users.length ? users : Arrays.copyOf(users, size);
+            }
+            return snapshot;
+        }
+    }
+
+    private static class IntBuffer {
+        private int[] data = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    private static class LongBuffer {
+        private long[] data = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// LSH-индекс по MinHash-сигнатурам множеств лайкнутых фильмов.
+// Сигнатура из bands * rows минимальных хэшей делится на bands полос, каждая полоса - ключ корзины.
+// Пользователи со сходством Жаккара s попадают хотя бы в одну общую корзину с вероятностью 1 - (1 - s^rows)^bands:
+// больше полос - выше полнота и больше кандидатов, больше строк в полосе - меньше кандидатов и ниже полнота.
+@Slf4j
+@Component
+public class MinHashIndex {
+    // Простое число Мерсенна 2^31 - 1 для универсального хэширования (a * x + b) mod P
+    private static final long PRIME = (1L << 31) - 1;
+
+    private final LikeIndex likeIndex;
+    private final boolean enabled;
+    private final int bands;
+    private final int rows;
+    private final long[] hashA;
+    private final long[] hashB;
+    private final Map<Long, Set<Integer>> buckets = new ConcurrentHashMap<>();
+    private final Map<Integer, long[]> bucketKeysByUser = new ConcurrentHashMap<>();
+
+    public MinHashIndex(LikeIndex likeIndex,
+                        @Value("${filmorate.recommendations.lsh.enabled:false}") boolean enabled,
+                        @Value("${filmorate.recommendations.lsh.bands:16}") int bands,
+                        @Value("${filmorate.recommendations.lsh.rows:1}") int rows) {
+        this.likeIndex = likeIndex;
+        this.enabled = enabled;
+        this.bands = bands;
+        this.rows = rows;
+        // Фиксированное зерно: сигнатуры воспроизводимы между перезапусками
+        Random random = new Random(31);
+        hashA = new long[bands * rows];
+        hashB = new long[bands * rows];
+        for (int i = 0; i < hashA.length; i++) {
+            hashA[i] = 1 + random.nextInt((int) PRIME - 1);
+            hashB[i] = random.nextInt((int) PRIME);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        buckets.clear();
+        bucketKeysByUser.clear();
+        if (!enabled) {
+            return;
+        }
+        likeIndex.forEachUser((userId, films) -> index(userId, films));
+        log.info("LSH-индекс построен: {} пользователей, {} корзин", bucketKeysByUser.size(), buckets.size());
+    }
+
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        if (enabled) {
+            update(event.userId());
+        }
+    }
+
+    // Пересчёт сигнатуры пользователя по текущему набору лайков
+    public synchronized void update(int userId) {
+        unindex(userId);
+        int[] films = likeIndex.getFilms(userId);
+        if (films.length > 0) {
+            index(userId, films);
+        }
+    }
+
+    // Пользователи, совпавшие с заданным хотя бы в одной полосе
+    public Set<Integer> getCandidates(int userId) {
+        Set<Integer> candidates = new HashSet<>();
+        long[] keys = bucketKeysByUser.get(userId);
+        if (keys == null) {
+            return candidates;
+        }
+        for (long key : keys) {
+            candidates.addAll(buckets.getOrDefault(key, Set.of()));
+        }
+        candidates.remove(userId);
+        return candidates;
+    }
+
+    private void index(int userId, int[] films) {
+        long[] keys = bucketKeys(signature(films));
+        for (long key : keys) {
+            buckets.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+        bucketKeysByUser.put(userId, keys);
+    }
+
+    private void unindex(int userId) {
+        long[] keys = bucketKeysByUser.remove(userId);
+        if (keys == null) {
+            return;
+        }
+        for (long key : keys) {
+            Set<Integer> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(userId);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    int[] signature(int[] films) {
+        int[] signature = new int[hashA.length];
+        for (int i = 0; i < signature.length; i++) {
+            long min = Long.MAX_VALUE;
+            for (int filmId : films) {
+                min = Math.min(min, (hashA[i] * filmId + hashB[i]) % PRIME);
+            }
+            signature[i] = (int) min;
+        }
+        return signature;
+    }
+
+    // Ключ корзины - хэш строк полосы вместе с номером полосы, чтобы полосы не смешивались
+    private long[] bucketKeys(int[] signature) {
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = band;
+            for (int row = 0; row < rows; row++) {
+                key = key * 1_000_003L + signature[band * rows + row];
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Резидентные рейтинги популярности: общий, по жанру, по году выхода и по паре (жанр, год).
+// Каждый рейтинг - RankingBoard, упорядоченный по (лайки, id). Читатели обходят его без блокировок.
+// Писатели сериализуются только по одному фильму: перестановка во всех рейтингах фильма выполняется
+// внутри compute() ConcurrentHashMap, который блокирует лишь корзину этого фильма.
+@Slf4j
+@Component
+public class PopularityLeaderboard {
+
+    private record Entry(int likes, int filmId) {
+    }
+
+    // Ключ рейтинга: null в поле означает "любой"
+    private record Key(Integer genreId, Integer year) {
+    }
+
+    // Состояние фильма, по которому определяется набор его рейтингов
+    private record FilmState(int likes, Set<Integer> genreIds, int year) {
+    }
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::likes)
+            .thenComparingInt(Entry::filmId)
+            .reversed();
+    private static final Key ALL = new Key(null, null);
+
+    private final JdbcTemplate jdbc;
+    private final LikeIndex likeIndex;
+    private final Map<Integer, FilmState> films = new ConcurrentHashMap<>();
+    private final Map<Key, RankingBoard<Entry>> boards = new ConcurrentHashMap<>();
+
+    public PopularityLeaderboard(JdbcTemplate jdbc, LikeIndex likeIndex) {
+        this.jdbc = jdbc;
+        this.likeIndex = likeIndex;
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<Integer, Set<Integer>> genresByFilm = new HashMap<>();
+        jdbc.query("SELECT film_id, genre_id FROM film_genres", rs -> {
+            genresByFilm.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>()).add(rs.getInt("genre_id"));
+        });
+        jdbc.query("SELECT id, release_date FROM films", rs -> {
+            int filmId = rs.getInt("id");
+            int year = rs.getDate("release_date").toLocalDate().getYear();
+            place(filmId, new FilmState(likeIndex.getLikesCount(filmId),
+                    genresByFilm.getOrDefault(filmId, Set.of()), year));
+        });
+        log.info("Рейтинги популярности построены: {} фильмов, {} рейтингов", films.size(), boards.size());
+    }
+
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        films.computeIfPresent(event.filmId(), (id, state) -> {
+            FilmState updated = new FilmState(likeIndex.getLikesCount(id), state.genreIds(), state.year());
+            move(id, state, updated);
+            return updated;
+        });
+    }
+
+    // Создание и удаление фильма, а также смена жанров или даты выхода при обновлении
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        if (event.isRemoved()) {
+            films.computeIfPresent(event.filmId(), (id, state) -> {
+                move(id, state, null);
+                return null;
+            });
+            return;
+        }
+        Film film = event.film();
+        Set<Integer> genreIds = new HashSet<>();
+        if (film.getGenres() != null) {
+            film.getGenres().stream()
+                    .map(Genre::getId)
+                    .filter(Objects::nonNull)
+                    .forEach(genreIds::add);
+        }
+        int year = film.getReleaseDate().getYear();
+        films.compute(event.filmId(), (id, state) -> {
+            FilmState updated = new FilmState(likeIndex.getLikesCount(id), genreIds, year);
+            move(id, state, updated);
+            return updated;
+        });
+    }
+
+    // Есть ли фильм в каталоге; рейтинг знает все фильмы, в том числе без лайков
+    public boolean hasFilm(int filmId) {
+        return films.containsKey(filmId);
+    }
+
+    // Идентификаторы count самых популярных фильмов: по убыванию лайков, при равенстве - по убыванию id
+    public List<Integer> getTop(int count) {
+        return getTop(count, null, null);
+    }
+
+    // То же с фильтром по жанру и/или году выхода; null - без фильтра
+    public List<Integer> getTop(int count, Integer genreId, Integer year) {
+        RankingBoard<Entry> board = boards.get(new Key(genreId, year));
+        return board == null ? new ArrayList<>() : board.top(count);
+    }
+
+    private void place(int filmId, FilmState state) {
+        films.compute(filmId, (id, old) -> {
+            move(id, old, state);
+            return state;
+        });
+    }
+
+    // Перестановка фильма во всех его рейтингах. Вызывается только внутри compute() по этому фильму
+    private void move(int filmId, FilmState oldState, FilmState newState) {
+        Set<Key> newKeys = newState == null ? Set.of() : keys(newState);
+        if (newState != null) {
+            for (Key key : newKeys) {
+                boards.computeIfAbsent(key, k -> new RankingBoard<>(ORDER, Entry::filmId))
+                        .add(new Entry(newState.likes(), filmId));
+            }
+        }
+        if (oldState != null) {
+            Entry oldEntry = new Entry(oldState.likes(), filmId);
+            for (Key key : keys(oldState)) {
+                if (newState == null || !newKeys.contains(key) || oldState.likes() != newState.likes()) {
+                    RankingBoard<Entry> board = boards.get(key);
+                    if (board != null) {
+                        board.remove(oldEntry);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<Key> keys(FilmState state) {
+        Set<Key> keys = new HashSet<>();
+        keys.add(ALL);
+        keys.add(new Key(null, state.year()));
+        for (Integer genreId : state.genreIds()) {
+            keys.add(new Key(genreId, null));
+            keys.add(new Key(genreId, state.year()));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,344 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+// Сжатое префиксное дерево (radix tree): цепочки узлов с единственным потомком склеены в одно ребро со строкой.
+// Ключ ведёт к набору фильмов, в каждом узле хранится готовый top-K фильмов всего его поддерева,
+// поэтому подсказка по префиксу - это спуск по дереву без обхода и сортировки поддерева.
+// top-K узла собирается только из своих фильмов и top-K прямых потомков: лучшие K фильмов поддерева
+// обязательно входят в top-K того потомка, в поддереве которого они лежат.
+// Метки рёбер неизменяемы, остальные поля узла - volatile-ссылки на неизменяемые массивы:
+// читатели спускаются без блокировок, писатели сериализуются на самом дереве.
+public class PrefixTrie {
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private record Entry(String key, int filmId) {
+    }
+
+    private final int topSize;
+    private final IntUnaryOperator likes;
+    private volatile Node root = new Node("");
+
+    // likes - текущее число лайков фильма, по нему (и по убыванию id) упорядочивается top-K
+    public PrefixTrie(int topSize, IntUnaryOperator likes) {
+        this.topSize = topSize;
+        this.likes = likes;
+    }
+
+    // Лучшие фильмы среди ключей, начинающихся с prefix, по убыванию лайков. Массив нельзя изменять
+    public int[] top(String prefix) {
+        Node node = root;
+        int offset = 0;
+        while (offset < prefix.length()) {
+            Node child = node.child(prefix.charAt(offset));
+            if (child == null) {
+                return SortedInts.EMPTY;
+            }
+            int common = commonPrefix(child.label, prefix, offset);
+            if (offset + common == prefix.length()) {
+                // Префикс закончился на ребре: все ключи поддерева child его продолжают
+                return child.top;
+            }
+            if (common < child.label.length()) {
+                return SortedInts.EMPTY;
+            }
+            offset += common;
+            node = child;
+        }
+        return node.top;
+    }
+
+    // Массовая загрузка: пары (keys[i], filmIds[i]) сортируются по ключу, и дерево строится за один проход
+    // по отсортированному массиву, без поиска места для каждого ключа от корня
+    public synchronized void rebuild(String[] keys, int[] filmIds) {
+        Entry[] entries = new Entry[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            entries[i] = new Entry(keys[i], filmIds[i]);
+        }
+        Arrays.parallelSort(entries, Comparator.comparing(Entry::key));
+        Node built = new Node("");
+        fill(built, entries, 0, entries.length, 0);
+        rankSubtree(built);
+        root = built;
+    }
+
+    public synchronized void add(String key, int filmId) {
+        insert(root, key, 0, filmId);
+    }
+
+    public synchronized void remove(String key, int filmId) {
+        delete(root, key, 0, filmId);
+    }
+
+    // Пересчёт top-K на пути к ключу после изменения лайков фильма.
+    // Подъём прекращается, как только фильма нет ни в старом, ни в новом top-K узла:
+    // выше по этому пути его позиция уже ни на что не влияет
+    public synchronized void refresh(String key, int filmId) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int offset = 0;
+        while (offset < key.length()) {
+            Node child = node.child(key.charAt(offset));
+            if (child == null) {
+                return;
+            }
+            int common = commonPrefix(child.label, key, offset);
+            if (common < child.label.length()) {
+                return;
+            }
+            offset += common;
+            node = child;
+            path.add(node);
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node current = path.get(i);
+            int[] old = current.top;
+            int[] updated = best(current);
+            current.top = updated;
+            if (!contains(old, filmId) && !contains(updated, filmId)) {
+                return;
+            }
+        }
+    }
+
+    // Все ключи entries[from, to) совпадают в первых depth символах - пути до node.
+    // Ключи, которые на этом пути заканчиваются, стоят в отсортированном массиве первыми
+    private void fill(Node node, Entry[] entries, int from, int to, int depth) {
+        int i = from;
+        while (i < to && entries[i].key().length() == depth) {
+            i++;
+        }
+        node.terminals = toSortedFilmIds(entries, from, i);
+        List<Node> children = new ArrayList<>();
+        while (i < to) {
+            char first = entries[i].key().charAt(depth);
+            int j = i + 1;
+            while (j < to && entries[j].key().charAt(depth) == first) {
+                j++;
+            }
+            // Общий префикс диапазона - это общий префикс его первого и последнего ключа
+            int common = commonPrefixFrom(entries[i].key(), entries[j - 1].key(), depth);
+            Node child = new Node(entries[i].key().substring(depth, depth + common));
+            fill(child, entries, i, j, depth + common);
+            children.add(child);
+            i = j;
+        }
+        node.children = children.toArray(NO_CHILDREN);
+    }
+
+    // Узел node уже сопоставлен с key[0, offset)
+    private void insert(Node node, String key, int offset, int filmId) {
+        if (offset == key.length()) {
+            node.terminals = SortedInts.insert(node.terminals, filmId);
+        } else {
+            int index = node.indexOf(key.charAt(offset));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(offset));
+                leaf.terminals = new int[]{filmId};
+                leaf.top = best(leaf);
+                node.children = insertAt(node.children, -index - 1, leaf);
+            } else {
+                Node child = node.children[index];
+                int common = commonPrefix(child.label, key, offset);
+                if (common < child.label.length()) {
+                    // Ключ расходится с ребром посередине: ребро делится, новый промежуточный узел
+                    // полностью собирается до публикации в массиве потомков
+                    Node tail = child.withLabel(child.label.substring(common));
+                    Node middle = new Node(child.label.substring(0, common));
+                    middle.children = new Node[]{tail};
+                    middle.top = tail.top;
+                    insert(middle, key, offset + common, filmId);
+                    node.children = replaceAt(node.children, index, middle);
+                } else {
+                    insert(child, key, offset + common, filmId);
+                }
+            }
+        }
+        node.top = best(node);
+    }
+
+    private void delete(Node node, String key, int offset, int filmId) {
+        if (offset == key.length()) {
+            node.terminals = SortedInts.remove(node.terminals, filmId);
+        } else {
+            int index = node.indexOf(key.charAt(offset));
+            if (index < 0) {
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, offset);
+            if (common < child.label.length()) {
+                return;
+            }
+            delete(child, key, offset + common, filmId);
+            if (child.terminals.length == 0 && child.children.length == 0) {
+                node.children = removeAt(node.children, index);
+            } else if (child.terminals.length == 0 && child.children.length == 1) {
+                // Узел без своих фильмов с одним потомком склеивается с ним в одно ребро
+                Node grandchild = child.children[0];
+                node.children = replaceAt(node.children, index, grandchild.withLabel(child.label + grandchild.label));
+            }
+        }
+        node.top = best(node);
+    }
+
+    private void rankSubtree(Node node) {
+        for (Node child : node.children) {
+            rankSubtree(child);
+        }
+        node.top = best(node);
+    }
+
+    private int[] best(Node node) {
+        if (node.children.length == 0 && node.terminals.length <= 1) {
+            // Лист с одним фильмом: top-K совпадает с массивом его фильмов и хранится в том же массиве
+            return node.terminals;
+        }
+        int size = node.terminals.length;
+        for (Node child : node.children) {
+            size += child.top.length;
+        }
+        // Ключ сортировки - лайки в старших битах, id в младших; один фильм может прийти от нескольких потомков
+        long[] keys = new long[size];
+        int position = 0;
+        for (int filmId : node.terminals) {
+            keys[position++] = rankKey(filmId);
+        }
+        for (Node child : node.children) {
+            for (int filmId : child.top) {
+                keys[position++] = rankKey(filmId);
+            }
+        }
+        Arrays.sort(keys);
+        int[] top = new int[Math.min(topSize, size)];
+        int count = 0;
+        for (int i = keys.length - 1; i >= 0 && count < top.length; i--) {
+            if (i == keys.length - 1 || keys[i] != keys[i + 1]) {
+                top[count++] = (int) keys[i];
+            }
+        }
+        return count == top.length ? top : Arrays.copyOf(top, count);
+    }
+
+    private long rankKey(int filmId) {
+        return ((long) likes.applyAsInt(filmId) << 32) | (filmId & 0xFFFFFFFFL);
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int element : values) {
+            if (element == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] toSortedFilmIds(Entry[] entries, int from, int to) {
+        if (from == to) {
+            return SortedInts.EMPTY;
+        }
+        int[] filmIds = new int[to - from];
+        for (int i = from; i < to; i++) {
+            filmIds[i - from] = entries[i].filmId();
+        }
+        Arrays.sort(filmIds);
+        // Один фильм мог прийти с одинаковым ключом дважды (например, из названия и из имени режиссёра)
+        int size = 0;
+        for (int i = 0; i < filmIds.length; i++) {
+            if (i == 0 || filmIds[i] != filmIds[i - 1]) {
+                filmIds[size++] = filmIds[i];
+            }
+        }
+        return size == filmIds.length ? filmIds : Arrays.copyOf(filmIds, size);
+    }
+
+    private static int commonPrefixFrom(String first, String second, int from) {
+        int length = Math.min(first.length(), second.length());
+        int i = from;
+        while (i < length && first.charAt(i) == second.charAt(i)) {
+            i++;
+        }
+        return i - from;
+    }
+
+    // Длина общего префикса label и key[offset, ...)
+    private static int commonPrefix(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Node[] insertAt(Node[] nodes, int position, Node node) {
+        Node[] result = new Node[nodes.length + 1];
+        System.arraycopy(nodes, 0, result, 0, position);
+        result[position] = node;
+        System.arraycopy(nodes, position, result, position + 1, nodes.length - position);
+        return result;
+    }
+
+    private static Node[] replaceAt(Node[] nodes, int position, Node node) {
+        Node[] result = nodes.clone();
+        result[position] = node;
+        return result;
+    }
+
+    private static Node[] removeAt(Node[] nodes, int position) {
+        Node[] result = new Node[nodes.length - 1];
+        System.arraycopy(nodes, 0, result, 0, position);
+        System.arraycopy(nodes, position + 1, result, position, nodes.length - position - 1);
+        return result;
+    }
+
+    private static final class Node {
+        private final String label;
+        // Потомки упорядочены по первому символу метки
+        private volatile Node[] children = NO_CHILDREN;
+        // Фильмы, ключ которых заканчивается ровно в этом узле
+        private volatile int[] terminals = SortedInts.EMPTY;
+        private volatile int[] top = SortedInts.EMPTY;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node withLabel(String newLabel) {
+            Node node = new Node(newLabel);
+            node.children = children;
+            node.terminals = terminals;
+            node.top = top;
+            return node;
+        }
+
+        Node child(char first) {
+            int index = indexOf(first);
+            return index < 0 ? null : children[index];
+        }
+
+        // Двоичный поиск по первому символу; отрицательный результат - как у Arrays.binarySearch
+        int indexOf(char first) {
+            Node[] nodes = children;
+            int low = 0;
+            int high = nodes.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char value = nodes[middle].label.charAt(0);
+                if (value < first) {
+                    low = middle + 1;
+                } else if (value > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
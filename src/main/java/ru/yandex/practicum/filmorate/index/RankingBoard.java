@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+// Рейтинг фильмов на skip list. Читатели обходят его без блокировок.
+// Писатель добавляет новую позицию фильма раньше, чем удаляет старую, поэтому дубликаты возможны (они отбрасываются).
+// Обход skip list слабо согласован: фильм, поднявшийся выше уже пройденной позиции, можно пропустить.
+// Поэтому чтение оптимистичное: если за время обхода завершилась хотя бы одна перестановка, обход повторяется.
+class RankingBoard<E> {
+    // После стольких неудачных попыток под непрерывной записью возвращается последний результат
+    private static final int READ_ATTEMPTS = 4;
+
+    private final NavigableSet<E> ranking;
+    private final ToIntFunction<E> filmId;
+    private final AtomicLong moves = new AtomicLong();
+
+    RankingBoard(Comparator<E> order, ToIntFunction<E> filmId) {
+        this.ranking = new ConcurrentSkipListSet<>(order);
+        this.filmId = filmId;
+    }
+
+    void add(E entry) {
+        ranking.add(entry);
+        moves.incrementAndGet();
+    }
+
+    void remove(E entry) {
+        ranking.remove(entry);
+        moves.incrementAndGet();
+    }
+
+    List<Integer> top(int count) {
+        List<Integer> top = scan(count);
+        for (int attempt = 1; attempt < READ_ATTEMPTS && top == null; attempt++) {
+            Thread.onSpinWait();
+            top = scan(count);
+        }
+        return top != null ? top : scanUnchecked(count);
+    }
+
+    // null, если во время обхода рейтинг изменился
+    private List<Integer> scan(int count) {
+        long version = moves.get();
+        List<Integer> top = scanUnchecked(count);
+        return moves.get() == version ? top : null;
+    }
+
+    private List<Integer> scanUnchecked(int count) {
+        List<Integer> top = new ArrayList<>(Math.max(count, 0));
+        Set<Integer> seen = new HashSet<>();
+        for (E entry : ranking) {
+            if (top.size() >= count) {
+                break;
+            }
+            int id = filmId.applyAsInt(entry);
+            if (seen.add(id)) {
+                top.add(id);
+            }
+        }
+        return top;
+    }
+}
@@ -0,0 +1,281 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Коллаборативная фильтрация по индексу лайков: выбираются N ближайших соседей пользователя
+// (по числу общих лайков или по коэффициенту Жаккара), затем фильмы соседей, которые пользователь
+// ещё не лайкал, ранжируются по сумме весов соседей. И соседи, и фильмы отбираются ограниченными кучами,
+// поэтому объём ответа и памяти не зависит от размера каталога.
+// Для пользователей с большим числом пересечений поиск соседей распараллеливается в ForkJoinPool:
+// диапазон id пользователей делится на части, каждая часть даёт свою частичную кучу соседей, кучи сливаются.
+// При включённом LSH точное сходство считается только для пользователей из общих с ним корзин MinHashIndex.
+@Slf4j
+@Component
+public class RecommendationScorer {
+
+    public enum Similarity {
+        OVERLAP,
+        JACCARD
+    }
+
+    public record Neighbour(int userId, int overlap, double weight) {
+    }
+
+    // Рекомендованные фильмы и соседи, по которым они посчитаны
+    public record Result(List<Integer> filmIds, List<Integer> neighbourIds) {
+    }
+
+    record ScoredFilm(int filmId, double score) {
+    }
+
+    private static final Comparator<Neighbour> NEIGHBOUR_ORDER = Comparator
+            .comparingDouble(Neighbour::weight)
+            .thenComparing(Neighbour::userId, Comparator.reverseOrder());
+
+    static final Comparator<ScoredFilm> FILM_ORDER = Comparator
+            .comparingDouble(ScoredFilm::score)
+            .thenComparing(ScoredFilm::filmId, Comparator.reverseOrder());
+
+    private final LikeIndex likeIndex;
+    private final MinHashIndex minHashIndex;
+    private final Similarity similarity;
+    private final int maxNeighbours;
+    private final boolean parallel;
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    public RecommendationScorer(LikeIndex likeIndex,
+                                MinHashIndex minHashIndex,
+                                @Value("${filmorate.recommendations.similarity:JACCARD}") Similarity similarity,
+                                @Value("${filmorate.recommendations.neighbours:50}") int maxNeighbours,
+                                @Value("${filmorate.recommendations.parallel.enabled:true}") boolean parallel,
+                                @Value("${filmorate.recommendations.parallel.threshold:50000}") int parallelThreshold,
+                                @Value("${filmorate.recommendations.parallel.pool-size:0}") int poolSize) {
+        this.likeIndex = likeIndex;
+        this.minHashIndex = minHashIndex;
+        this.similarity = similarity;
+        this.maxNeighbours = maxNeighbours;
+        this.parallel = parallel;
+        this.parallelThreshold = parallelThreshold;
+        // pool-size = 0 - общий пул, иначе выделенный пул, чтобы рекомендации не отнимали потоки у остального кода
+        this.pool = poolSize > 0 ? new ForkJoinPool(poolSize) : ForkJoinPool.commonPool();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    // Возвращает не более limit идентификаторов фильмов, от наиболее к наименее рекомендуемому
+    public List<Integer> recommend(int userId, int limit) {
+        return score(userId, limit).filmIds();
+    }
+
+    public Result score(int userId, int limit) {
+        int[] userLikedFilms = likeIndex.getFilms(userId);
+        if (userLikedFilms.length == 0) {
+            return new Result(new ArrayList<>(), new ArrayList<>());
+        }
+        List<Neighbour> neighbours = selectNeighbours(userId, userLikedFilms);
+        List<Integer> films = scoreFilms(userLikedFilms, neighbours, limit);
+        log.debug("Пользователь {}: {} соседей, {} рекомендаций", userId, neighbours.size(), films.size());
+        List<Integer> neighbourIds = neighbours.stream()
+                .map(Neighbour::userId)
+                .toList();
+        return new Result(films, neighbourIds);
+    }
+
+    List<Neighbour> selectNeighbours(int userId, int[] userLikedFilms) {
+        if (minHashIndex.isEnabled()) {
+            return selectCandidateNeighbours(userId, userLikedFilms);
+        }
+        // Списки пользователей по каждому лайкнутому фильму отсортированы, поэтому
+        // любой диапазон id пользователей в них находится двоичным поиском
+        int[][] postings = new int[userLikedFilms.length][];
+        long total = 0;
+        int minUserId = Integer.MAX_VALUE;
+        int maxUserId = Integer.MIN_VALUE;
+        for (int i = 0; i < userLikedFilms.length; i++) {
+            postings[i] = likeIndex.getUsers(userLikedFilms[i]);
+            total += postings[i].length;
+            if (postings[i].length > 0) {
+                minUserId = Math.min(minUserId, postings[i][0]);
+                maxUserId = Math.max(maxUserId, postings[i][postings[i].length - 1]);
+            }
+        }
+        if (total == 0) {
+            return new ArrayList<>();
+        }
+
+        long from = minUserId;
+        long to = (long) maxUserId + 1;
+        PriorityQueue<Neighbour> best;
+        if (!parallel || total < parallelThreshold) {
+            best = scanRange(userId, userLikedFilms.length, postings, from, to);
+        } else {
+            // Частей в несколько раз больше, чем потоков, чтобы выровнять неравномерное распределение id
+            long grain = Math.max(1, (to - from) / (pool.getParallelism() * 4L));
+            best = pool.invoke(new NeighbourScanTask(userId, userLikedFilms.length, postings, from, to, grain));
+        }
+        return drainDescending(best);
+    }
+
+    // Точное сходство только с кандидатами из LSH-корзин: пересечение отсортированных массивов фильмов
+    private List<Neighbour> selectCandidateNeighbours(int userId, int[] userLikedFilms) {
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(NEIGHBOUR_ORDER);
+        for (int otherUserId : minHashIndex.getCandidates(userId)) {
+            int[] otherLikedFilms = likeIndex.getFilms(otherUserId);
+            int overlap = intersectionSize(userLikedFilms, otherLikedFilms);
+            if (overlap > 0) {
+                double weight = weight(overlap, userLikedFilms.length, otherLikedFilms.length);
+                offer(best, new Neighbour(otherUserId, overlap, weight), maxNeighbours, NEIGHBOUR_ORDER);
+            }
+        }
+        return drainDescending(best);
+    }
+
+    private static int intersectionSize(int[] first, int[] second) {
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    // Соседи с id из [from, to): подсчёт общих лайков и частичная куча лучших
+    private PriorityQueue<Neighbour> scanRange(int userId, int userLikes, int[][] postings, long from, long to) {
+        Map<Integer, Integer> overlaps = new HashMap<>();
+        for (int[] users : postings) {
+            for (int i = lowerBound(users, from); i < users.length && users[i] < to; i++) {
+                if (users[i] != userId) {
+                    overlaps.merge(users[i], 1, Integer::sum);
+                }
+            }
+        }
+
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(NEIGHBOUR_ORDER);
+        overlaps.forEach((otherUserId, overlap) -> {
+            double weight = weight(overlap, userLikes, likeIndex.getFilms(otherUserId).length);
+            offer(best, new Neighbour(otherUserId, overlap, weight), maxNeighbours, NEIGHBOUR_ORDER);
+        });
+        return best;
+    }
+
+    private static int lowerBound(int[] values, long key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private class NeighbourScanTask extends RecursiveTask<PriorityQueue<Neighbour>> {
+        private final int userId;
+        private final int userLikes;
+        private final int[][] postings;
+        private final long from;
+        private final long to;
+        private final long grain;
+
+        NeighbourScanTask(int userId, int userLikes, int[][] postings, long from, long to, long grain) {
+            this.userId = userId;
+            this.userLikes = userLikes;
+            this.postings = postings;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected PriorityQueue<Neighbour> compute() {
+            if (to - from <= grain) {
+                return scanRange(userId, userLikes, postings, from, to);
+            }
+            long middle = from + (to - from) / 2;
+            NeighbourScanTask left = new NeighbourScanTask(userId, userLikes, postings, from, middle, grain);
+            left.fork();
+            PriorityQueue<Neighbour> best = new NeighbourScanTask(userId, userLikes, postings, middle, to, grain)
+                    .compute();
+            // Слияние частичных куч: итог снова ограничен maxNeighbours
+            for (Neighbour neighbour : left.join()) {
+                offer(best, neighbour, maxNeighbours, NEIGHBOUR_ORDER);
+            }
+            return best;
+        }
+    }
+
+    List<Integer> scoreFilms(int[] userLikedFilms, List<Neighbour> neighbours, int limit) {
+        Map<Integer, Double> scores = new HashMap<>();
+        for (Neighbour neighbour : neighbours) {
+            for (int filmId : likeIndex.getFilms(neighbour.userId())) {
+                if (Arrays.binarySearch(userLikedFilms, filmId) < 0) {
+                    scores.merge(filmId, neighbour.weight(), Double::sum);
+                }
+            }
+        }
+
+        PriorityQueue<ScoredFilm> best = new PriorityQueue<>(FILM_ORDER);
+        scores.forEach((filmId, score) -> offer(best, new ScoredFilm(filmId, score), limit, FILM_ORDER));
+        return drainDescending(best).stream()
+                .map(ScoredFilm::filmId)
+                .toList();
+    }
+
+    double weight(int overlap, int userLikes, int otherUserLikes) {
+        if (similarity == Similarity.OVERLAP) {
+            return overlap;
+        }
+        return (double) overlap / (userLikes + otherUserLikes - overlap);
+    }
+
+    // Ограниченная min-куча: в корне всегда худший из отобранных элементов
+    static <T> void offer(PriorityQueue<T> heap, T item, int capacity, Comparator<T> order) {
+        if (heap.size() < capacity) {
+            heap.add(item);
+        } else if (capacity > 0 && order.compare(item, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    static <T> List<T> drainDescending(PriorityQueue<T> heap) {
+        List<T> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+
+// Операции над отсортированными int[] без повторов. Исходные массивы не изменяются (copy-on-write)
+final class SortedInts {
+    static final int[] EMPTY = new int[0];
+    // Во сколько раз длинный список должен превосходить короткий, чтобы искать двоичным поиском
+    private static final int GALLOP_RATIO = 16;
+
+    private SortedInts() {
+    }
+
+    // Возвращает тот же массив, если значение уже присутствует
+    static int[] insert(int[] values, int value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return values;
+        }
+        position = -position - 1;
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(values, position, result, position + 1, values.length - position);
+        return result;
+    }
+
+    // Возвращает тот же массив, если значения нет
+    static int[] remove(int[] values, int value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position < 0) {
+            return values;
+        }
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, position);
+        System.arraycopy(values, position + 1, result, position, values.length - position - 1);
+        return result;
+    }
+
+    static int[] intersect(int[] first, int[] second) {
+        if (first.length > second.length) {
+            return intersect(second, first);
+        }
+        if (second.length / GALLOP_RATIO > first.length) {
+            return gallop(first, second);
+        }
+        int[] result = new int[first.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Каждый элемент короткого списка ищется в длинном двоичным поиском, начиная с предыдущей позиции
+    private static int[] gallop(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int size = 0;
+        int from = 0;
+        for (int value : small) {
+            int position = Arrays.binarySearch(large, from, large.length, value);
+            if (position >= 0) {
+                result[size++] = value;
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+            if (from == large.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
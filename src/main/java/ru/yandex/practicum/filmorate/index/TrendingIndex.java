@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Рейтинг "в тренде": каждый лайк весит exp(-λ·возраст), λ = ln2 / период полураспада.
+// Сумма весов у всех фильмов убывает с одной скоростью, поэтому для порядка достаточно хранить
+// L = ln Σ exp(λ·(t_i - t0)) относительно опорного момента t0: лайк добавляется и снимается за O(log n)
+// без пересчёта остальных фильмов. Логарифм не переполняется, но растёт со временем,
+// поэтому периодически t0 переносится на текущий момент и из всех L вычитается одна и та же величина.
+@Slf4j
+@Component
+public class TrendingIndex {
+
+    private record Entry(double score, int filmId) {
+    }
+
+    // Логарифм суммы весов и число лайков: при последнем снятом лайке фильм удаляется без вычислений,
+    // чтобы не оставлять "хвост" из ошибки округления log1p
+    private record FilmScore(double logScore, int likes) {
+    }
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingDouble(Entry::score)
+            .thenComparingInt(Entry::filmId)
+            .reversed();
+
+    // Если снимаемый лайк весит больше 1 - e^-20 от суммы, разность считается заново
+    private static final double CANCELLATION_LIMIT = -20;
+
+    private final JdbcTemplate jdbc;
+    private final LikeIndex likeIndex;
+    private final double lambda;
+    private final Map<Integer, FilmScore> scores = new HashMap<>();
+    private volatile RankingBoard<Entry> board = new RankingBoard<>(ORDER, Entry::filmId);
+    private long origin;
+
+    public TrendingIndex(JdbcTemplate jdbc,
+                         LikeIndex likeIndex,
+                         @Value("${filmorate.trending.half-life-hours:24}") double halfLifeHours) {
+        this.jdbc = jdbc;
+        this.likeIndex = likeIndex;
+        this.lambda = Math.log(2) / (halfLifeHours * 3600);
+        this.origin = Instant.now().getEpochSecond();
+    }
+
+    @PostConstruct
+    public void load() {
+        jdbc.query("SELECT film_id, created_at FROM film_likes", rs -> {
+            add(rs.getInt("film_id"), rs.getLong("created_at"));
+        });
+        log.info("Рейтинг трендов построен: {} фильмов", scores.size());
+    }
+
+    @EventListener
+    public void onLikeChanged(LikeChangedEvent event) {
+        if (event.added()) {
+            add(event.filmId(), event.likedAt());
+        } else {
+            remove(event.filmId(), event.likedAt());
+        }
+    }
+
+    @EventListener
+    public void onFilmChanged(FilmChangedEvent event) {
+        if (event.isRemoved()) {
+            drop(event.filmId());
+        }
+    }
+
+    // Идентификаторы count фильмов с наибольшим затухающим числом лайков
+    public List<Integer> getTop(int count) {
+        return count <= 0 ? new ArrayList<>() : board.top(count);
+    }
+
+    public synchronized void add(int filmId, long likedAt) {
+        double exponent = lambda * (likedAt - origin);
+        FilmScore old = scores.get(filmId);
+        FilmScore updated = old == null
+                ? new FilmScore(exponent, 1)
+                : new FilmScore(logAddExp(old.logScore(), exponent), old.likes() + 1);
+        replace(filmId, old, updated);
+    }
+
+    public synchronized void remove(int filmId, long likedAt) {
+        FilmScore old = scores.get(filmId);
+        if (old == null) {
+            return;
+        }
+        if (old.likes() <= 1) {
+            replace(filmId, old, null);
+            return;
+        }
+        double exponent = lambda * (likedAt - origin);
+        double logScore;
+        if (exponent - old.logScore() > CANCELLATION_LIMIT) {
+            // Снятый лайк составлял почти всю сумму: вычитание потеряло бы остаток в округлении,
+            // поэтому сумма фильма пересчитывается по оставшимся лайкам из индекса
+            logScore = Double.NEGATIVE_INFINITY;
+            for (int userId : likeIndex.getUsers(filmId)) {
+                logScore = logAddExp(logScore, lambda * (likeIndex.getLikedAt(userId, filmId) - origin));
+            }
+        } else {
+            // ln(e^L - e^x) = L + ln(1 - e^(x - L))
+            logScore = old.logScore() + Math.log1p(-Math.exp(exponent - old.logScore()));
+        }
+        replace(filmId, old, new FilmScore(logScore, old.likes() - 1));
+    }
+
+    // Перенос опорного момента на текущее время. Порядок фильмов не меняется, поэтому новый рейтинг
+    // собирается в стороне и подменяет старый одной записью в volatile-поле
+    @Scheduled(fixedDelayString = "${filmorate.trending.rescale-ms:3600000}")
+    public synchronized void rescale() {
+        long now = Instant.now().getEpochSecond();
+        double shift = lambda * (now - origin);
+        RankingBoard<Entry> rescaled = new RankingBoard<>(ORDER, Entry::filmId);
+        scores.replaceAll((filmId, score) -> {
+            FilmScore shifted = new FilmScore(score.logScore() - shift, score.likes());
+            rescaled.add(new Entry(shifted.logScore(), filmId));
+            return shifted;
+        });
+        origin = now;
+        board = rescaled;
+        log.debug("Опорный момент рейтинга трендов перенесён на {}, сдвиг {}", now, shift);
+    }
+
+    private synchronized void drop(int filmId) {
+        FilmScore old = scores.get(filmId);
+        if (old != null) {
+            replace(filmId, old, null);
+        }
+    }
+
+    private void replace(int filmId, FilmScore old, FilmScore updated) {
+        if (updated != null) {
+            scores.put(filmId, updated);
+            board.add(new Entry(updated.logScore(), filmId));
+        } else {
+            scores.remove(filmId);
+        }
+        if (old != null && (updated == null || old.logScore() != updated.logScore())) {
+            board.remove(new Entry(old.logScore(), filmId));
+        }
+    }
+
+    private static double logAddExp(double a, double b) {
+        double max = Math.max(a, b);
+        if (max == Double.NEGATIVE_INFINITY) {
+            return max;
+        }
+        return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+    }
+}
@@ -0,0 +1,221 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+// Инвертированный индекс триграмм над короткими текстами (названия фильмов, имена режиссёров).
+// Для каждой триграммы хранится отсортированный int[] идентификаторов документов, содержащих её.
+// Подстрока длиной от трёх символов ищется пересечением списков всех её триграмм с последующей
+// проверкой contains(): пересечение даёт только кандидатов, порядок триграмм в тексте оно не учитывает.
+// Нечёткий поиск: q-граммная лемма даёт кандидатов - если подстрока текста отличается от запроса не более
+// чем на k правок, а каждая правка портит не больше трёх триграмм, то общих различных триграмм у них
+// не меньше |G| - 3k. Кандидаты проверяются ограниченным расстоянием Левенштейна до лучшей подстроки текста.
+// Массивы не изменяются после публикации (copy-on-write), поэтому читатели работают без блокировок.
+class TrigramIndex {
+
+    // Найденный документ и число правок до ближайшей подстроки его текста
+    interface FuzzyMatch {
+        void accept(int id, int distance);
+    }
+
+    private static final int GRAM = 3;
+
+    private final Map<Integer, String> texts = new ConcurrentHashMap<>();
+    private final Map<String, int[]> postings = new ConcurrentHashMap<>();
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> grams(String normalized) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    // Полная перестройка по документам id -> текст
+    synchronized void rebuild(Map<Integer, String> documents) {
+        texts.clear();
+        postings.clear();
+        Map<String, List<Integer>> built = new HashMap<>();
+        documents.forEach((id, text) -> {
+            String normalized = normalize(text);
+            texts.put(id, normalized);
+            for (String gram : grams(normalized)) {
+                built.computeIfAbsent(gram, g -> new ArrayList<>()).add(id);
+            }
+        });
+        built.forEach((gram, ids) -> {
+            int[] sorted = ids.stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(sorted);
+            postings.put(gram, sorted);
+        });
+    }
+
+    // Добавление, замена (text != null) или удаление (text == null) документа.
+    // Меняются только списки триграмм, которые различаются у старого и нового текста
+    synchronized void put(int id, String text) {
+        String oldText = texts.get(id);
+        String newText = text == null ? null : normalize(text);
+        Set<String> oldGrams = oldText == null ? Set.of() : grams(oldText);
+        Set<String> newGrams = newText == null ? Set.of() : grams(newText);
+        if (newText != null) {
+            texts.put(id, newText);
+        }
+        for (String gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                postings.put(gram, SortedInts.insert(postings.getOrDefault(gram, SortedInts.EMPTY), id));
+            }
+        }
+        for (String gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                int[] ids = SortedInts.remove(postings.getOrDefault(gram, SortedInts.EMPTY), id);
+                if (ids.length == 0) {
+                    postings.remove(gram);
+                } else {
+                    postings.put(gram, ids);
+                }
+            }
+        }
+        if (newText == null) {
+            texts.remove(id);
+        }
+    }
+
+    // Все документы, содержащие подстроку query (без учёта регистра)
+    void search(String query, IntConsumer action) {
+        String normalized = normalize(query);
+        if (normalized.length() < GRAM) {
+            // Запросы короче триграммы не сужаются индексом: проверяются все документы
+            texts.forEach((id, text) -> {
+                if (text.contains(normalized)) {
+                    action.accept(id);
+                }
+            });
+            return;
+        }
+        List<int[]> lists = new ArrayList<>();
+        for (String gram : grams(normalized)) {
+            int[] ids = postings.get(gram);
+            if (ids == null) {
+                return;
+            }
+            lists.add(ids);
+        }
+        // Пересечение начинается с самого короткого списка, чтобы промежуточный результат был минимальным
+        lists.sort(Comparator.comparingInt(ids -> ids.length));
+        int[] candidates = lists.get(0);
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = SortedInts.intersect(candidates, lists.get(i));
+        }
+        for (int id : candidates) {
+            String text = texts.get(id);
+            if (text != null && text.contains(normalized)) {
+                action.accept(id);
+            }
+        }
+    }
+
+    // Документы, в тексте которых есть подстрока не дальше maxEdits правок от query
+    void searchFuzzy(String query, int maxEdits, FuzzyMatch action) {
+        String normalized = normalize(query);
+        Set<String> grams = grams(normalized);
+        int threshold = grams.size() - GRAM * maxEdits;
+        if (threshold <= 0) {
+            // Лемма ничего не гарантирует: общих триграмм может не быть вовсе, проверяются все документы
+            texts.forEach((id, text) -> verify(id, text, normalized, maxEdits, action));
+            return;
+        }
+        List<int[]> lists = new ArrayList<>();
+        for (String gram : grams) {
+            lists.add(postings.getOrDefault(gram, SortedInts.EMPTY));
+        }
+        lists.sort(Comparator.comparingInt(ids -> ids.length));
+        // Документ, в котором есть threshold триграмм из |G|, обязательно встречается хотя бы в одном из
+        // |G| - threshold + 1 самых коротких списков: кандидаты набираются только из них,
+        // а длинные списки частых триграмм лишь дополняют счёт двоичным поиском
+        int shortLists = lists.size() - threshold + 1;
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (int i = 0; i < shortLists; i++) {
+            for (int id : lists.get(i)) {
+                shared.merge(id, 1, Integer::sum);
+            }
+        }
+        shared.forEach((id, count) -> {
+            int total = count;
+            for (int i = shortLists; i < lists.size() && total < threshold; i++) {
+                if (Arrays.binarySearch(lists.get(i), id) >= 0) {
+                    total++;
+                }
+            }
+            String text = texts.get(id);
+            if (total >= threshold && text != null) {
+                verify(id, text, normalized, maxEdits, action);
+            }
+        });
+    }
+
+    private static void verify(int id, String text, String query, int maxEdits, FuzzyMatch action) {
+        int distance = substringDistance(query, text, maxEdits);
+        if (distance <= maxEdits) {
+            action.accept(id, distance);
+        }
+    }
+
+    // Наименьшее расстояние Левенштейна от query до подстроки text (начало подстроки бесплатно).
+    // Отсечение Укконена: считаются только строки столбца до последней, где значение ещё не больше maxEdits.
+    // Возвращает maxEdits + 1, если подходящей подстроки нет
+    static int substringDistance(String query, String text, int maxEdits) {
+        int length = query.length();
+        int[] column = new int[length + 1];
+        for (int j = 0; j <= length; j++) {
+            column[j] = j;
+        }
+        int lastActive = Math.min(maxEdits, length);
+        // Запрос не длиннее maxEdits совпадает уже с пустой подстрокой
+        int best = lastActive == length ? length : maxEdits + 1;
+        for (int i = 0; i < text.length(); i++) {
+            char symbol = text.charAt(i);
+            int diagonal = 0;
+            int limit = Math.min(lastActive + 1, length);
+            for (int j = 1; j <= limit; j++) {
+                // Строки ниже lastActive не пересчитывались: известно лишь, что там больше maxEdits
+                int above = j <= lastActive ? column[j] : maxEdits + 1;
+                int substitution = diagonal + (query.charAt(j - 1) == symbol ? 0 : 1);
+                column[j] = Math.min(substitution, Math.min(above, column[j - 1]) + 1);
+                diagonal = above;
+            }
+            lastActive = limit;
+            while (column[lastActive] > maxEdits) {
+                lastActive--;
+            }
+            if (lastActive == length) {
+                best = Math.min(best, column[length]);
+                if (best == 0) {
+                    return 0;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Нормализованный текст документа или null
+    String text(int id) {
+        return texts.get(id);
+    }
+
+    int size() {
+        return texts.size();
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Отклонённый элемент пакетной загрузки: номер во входном потоке (с нуля) и причина
+@Data
+@AllArgsConstructor
+public class BatchFailure {
+    private long item;
+    private String reason;
+}
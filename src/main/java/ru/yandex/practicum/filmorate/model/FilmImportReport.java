@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Итог импорта каталога. received = imported + rejected; номера строк в failures считаются с нуля
+// без заголовка CSV, в отчёт попадают только первые MAX_FAILURES отклонённых строк.
+// completed = false - поток оборвался или перестал разбираться, уже записанные пачки остаются в базе
+@Data
+public class FilmImportReport {
+    public static final int MAX_FAILURES = 1000;
+
+    private long received;
+    private long imported;
+    private long rejected;
+    private boolean completed = true;
+    private long elapsedMillis;
+    private double filmsPerSecond;
+    private List<BatchFailure> failures = new ArrayList<>();
+
+    public void reject(long item, String reason) {
+        rejected++;
+        if (failures.size() < MAX_FAILURES) {
+            failures.add(new BatchFailure(item, reason));
+        }
+    }
+
+    // Разбор прерван на строке item: остальная часть потока не читается
+    public void abort(long item, String reason) {
+        completed = false;
+        failures.add(new BatchFailure(item, reason));
+    }
+
+    public void finish(long startNanos) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        elapsedMillis = elapsedNanos / 1_000_000;
+        filmsPerSecond = elapsedNanos == 0 ? 0 : imported * 1e9 / elapsedNanos;
+    }
+}
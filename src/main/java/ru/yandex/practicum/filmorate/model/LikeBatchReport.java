@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Итог пакетной загрузки лайков. received = applied + unchanged + rejected;
+// в failures попадают только первые MAX_FAILURES отклонённых элементов.
+// completed = false - поток оборвался или перестал быть JSON, уже записанные пачки остаются в базе
+@Data
+public class LikeBatchReport {
+    public static final int MAX_FAILURES = 1000;
+
+    private long received;
+    private long applied;
+    private long unchanged;
+    private long rejected;
+    private boolean completed = true;
+    private List<BatchFailure> failures = new ArrayList<>();
+
+    public void reject(long item, String reason) {
+        rejected++;
+        if (failures.size() < MAX_FAILURES) {
+            failures.add(new BatchFailure(item, reason));
+        }
+    }
+
+    // Разбор прерван на элементе item: остальная часть потока не читается
+    public void abort(long item, String reason) {
+        completed = false;
+        failures.add(new BatchFailure(item, reason));
+    }
+
+    public void count(boolean changed) {
+        if (changed) {
+            applied++;
+        } else {
+            unchanged++;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Элемент пакетной загрузки лайков; op - ADD или REMOVE, как операции лайков в ленте
+@Data
+@AllArgsConstructor
+public class LikeOperation {
+    public static final String ADD = "ADD";
+    public static final String REMOVE = "REMOVE";
+
+    private int userId;
+    private int filmId;
+    private String op;
+
+    public boolean isAdd() {
+        return ADD.equals(op);
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// Страница выборки с курсорной пагинацией: элементы и непрозрачный курсор следующей страницы.
+// nextCursor == null - страница последняя
+@Data
+@AllArgsConstructor
+public class Page<T> {
+    private List<T> items;
+    private String nextCursor;
+}
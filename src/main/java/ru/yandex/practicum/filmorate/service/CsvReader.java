@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Потоковое чтение CSV по RFC 4180: поля через запятую, поле в двойных кавычках может содержать запятые,
+// переводы строк и удвоенные кавычки. Записи читаются по одной, остальной поток в памяти не держится
+class CsvReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    // Номер текущей строки файла для сообщений об ошибках
+    private long line = 1;
+
+    CsvReader(InputStream in) {
+        reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    // Поля следующей записи или null в конце потока
+    List<String> readRecord() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Незакрытая кавычка в записи, начатой до строки " + line);
+                }
+                if (c == '"') {
+                    c = reader.read();
+                    if (c != '"') {
+                        // Закрывающая кавычка: следующий символ разбирается уже вне кавычек
+                        quoted = false;
+                        continue;
+                    }
+                }
+                if (c == '\n') {
+                    line++;
+                }
+                field.append((char) c);
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                line++;
+                break;
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
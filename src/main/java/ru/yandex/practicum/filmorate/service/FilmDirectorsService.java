@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
 import java.util.List;
@@ -18,12 +19,21 @@ public class FilmDirectorsService {
     }
 
     public List<Film> getDirectorSort(Integer directorId, String sortBy) {
+        validateSort(directorId, sortBy);
+        return filmStorage.getDirectorSort(directorId, sortBy);
+    }
+
+    public Page<Film> getDirectorSortPage(Integer directorId, String sortBy, String cursor, int limit) {
+        validateSort(directorId, sortBy);
+        return filmStorage.getDirectorSortPage(directorId, sortBy, cursor, limit);
+    }
+
+    private void validateSort(Integer directorId, String sortBy) {
         if (directorId == null) {
             throw new ValidationException("Укажите ид режиссера для сортировки");
         }
         if (!sortBy.equals("year") && !sortBy.equals("likes")) {
             throw new ValidationException("Критерий сортировки указан не верно");
         }
-        return filmStorage.getDirectorSort(directorId, sortBy);
     }
 }
@@ -0,0 +1,267 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dao.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.exceptions.GenreException;
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.exceptions.MPAException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportReport;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPARating;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Массовый импорт каталога из NDJSON (по фильму в формате POST /films в строке) или CSV с заголовком.
+// Тело читается потоком, в памяти держится не больше одной пачки chunk-size фильмов.
+// Каждый фильм проверяется как в POST /films, ссылки на рейтинг, жанры и режиссеров - по кэшу справочников,
+// чтобы отклонить отдельный фильм, а не всю пачку; проверенные фильмы пишутся FilmStorage.createAll,
+// одна пачка - одна транзакция из трёх многострочных INSERT
+@Slf4j
+@Service
+public class FilmImportService {
+    // Обязательные колонки CSV; необязательные - mpa, genres и directors, жанры и режиссеры - id через |
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "description", "releaseDate", "duration");
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final FilmStorage filmStorage;
+    private final ReferenceDataCache referenceCache;
+    private final int chunkSize;
+
+    public FilmImportService(ObjectMapper objectMapper, Validator validator,
+                             @Qualifier("filmDbStorage") FilmStorage filmStorage, ReferenceDataCache referenceCache,
+                             @Value("${filmorate.films.import.chunk-size:1000}") int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.filmStorage = filmStorage;
+        this.referenceCache = referenceCache;
+        this.chunkSize = chunkSize;
+    }
+
+    public FilmImportReport importNdjson(InputStream body) {
+        Import batch = new Import();
+        try (MappingIterator<JsonNode> items = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            while (items.hasNextValue()) {
+                JsonNode item = items.nextValue();
+                Film film;
+                try {
+                    film = objectMapper.treeToValue(item, Film.class);
+                } catch (JsonProcessingException e) {
+                    batch.reject("Некорректный фильм: " + e.getOriginalMessage());
+                    continue;
+                }
+                batch.accept(film);
+            }
+        } catch (IOException e) {
+            // Синтаксическую ошибку в потоке не обойти: уже записанные пачки остаются, хвост не читается
+            batch.abort("Поток прерван: " + e.getMessage());
+        }
+        return batch.finish();
+    }
+
+    public FilmImportReport importCsv(InputStream body) {
+        Import batch = new Import();
+        CsvReader csv = new CsvReader(body);
+        try {
+            List<String> header = csv.readRecord();
+            if (header == null) {
+                return batch.finish();
+            }
+            Map<String, Integer> columns = columns(header);
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                if (record.size() != header.size()) {
+                    batch.reject("Ожидается полей: " + header.size() + ", получено: " + record.size());
+                    continue;
+                }
+                Film film;
+                try {
+                    film = fromCsv(record, columns);
+                } catch (DateTimeParseException | NumberFormatException e) {
+                    batch.reject("Некорректный фильм: " + e.getMessage());
+                    continue;
+                }
+                batch.accept(film);
+            }
+        } catch (IOException e) {
+            batch.abort("Поток прерван: " + e.getMessage());
+        }
+        return batch.finish();
+    }
+
+    private static Map<String, Integer> columns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            // Метка порядка байтов, которую добавляют табличные редакторы, - не часть имени колонки
+            columns.put(header.get(i).replace("\uFEFF", "").trim(), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IncorrectParameterException("В заголовке CSV нет колонки " + column);
+            }
+        }
+        return columns;
+    }
+
+    private static Film fromCsv(List<String> record, Map<String, Integer> columns) {
+        Film film = new Film();
+        film.setName(record.get(columns.get("name")));
+        film.setDescription(record.get(columns.get("description")));
+        film.setReleaseDate(LocalDate.parse(record.get(columns.get("releaseDate")).trim()));
+        film.setDuration(Integer.parseInt(record.get(columns.get("duration")).trim()));
+        String mpa = field(record, columns, "mpa");
+        film.setMpa(mpa.isEmpty() ? null : new MPARating(Integer.parseInt(mpa), null));
+        film.setGenres(ids(field(record, columns, "genres"), id -> new Genre(id, null)));
+        film.setDirectors(ids(field(record, columns, "directors"), id -> new Director(id, null)));
+        return film;
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index == null ? "" : record.get(index).trim();
+    }
+
+    private static <T> Set<T> ids(String value, Function<Integer, T> reference) {
+        Set<T> references = new HashSet<>();
+        for (String id : value.split("\\|")) {
+            if (!id.isBlank()) {
+                references.add(reference.apply(Integer.parseInt(id.trim())));
+            }
+        }
+        return references;
+    }
+
+    // Те же проверки, что у POST /films; ссылки проверяются по кэшу справочников. null - фильм корректен
+    private String validate(Film film) {
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        if (film.getReleaseDate().isBefore(FilmDbStorage.MIN_RELEASE_DATE)) {
+            return "Дата релиза не может быть раньше " + FilmDbStorage.MIN_RELEASE_DATE;
+        }
+        if (film.getGenres() == null) {
+            film.setGenres(new HashSet<>());
+        }
+        if (film.getDirectors() == null) {
+            film.setDirectors(new HashSet<>());
+        }
+        return checkReferences(film);
+    }
+
+    // Сообщения те же, что у FilmStorage.create; имена из справочников подставит сама запись
+    private String checkReferences(Film film) {
+        if (film.getMpa() != null
+                && (film.getMpa().getId() == null || referenceCache.getMpaRating(film.getMpa().getId()) == null)) {
+            return "Ошибка с заполнением рейтинга";
+        }
+        for (Genre genre : film.getGenres()) {
+            if (genre.getId() == null || referenceCache.getGenre(genre.getId()) == null) {
+                return "Ошибка с заполнением жанра";
+            }
+        }
+        for (Director director : film.getDirectors()) {
+            if (director.getId() != null && referenceCache.getDirector(director.getId()) == null) {
+                return "Режиссер по ид : " + director.getId() + " не найден";
+            }
+        }
+        return null;
+    }
+
+    // Состояние одного импорта: отчёт, номер текущей строки и накопленная пачка проверенных фильмов
+    private final class Import {
+        private final long start = System.nanoTime();
+        private final FilmImportReport report = new FilmImportReport();
+        private final List<Film> films = new ArrayList<>(chunkSize);
+        private final List<Long> positions = new ArrayList<>(chunkSize);
+        private long position;
+
+        void reject(String reason) {
+            report.setReceived(report.getReceived() + 1);
+            report.reject(position++, reason);
+        }
+
+        void accept(Film film) {
+            String error = validate(film);
+            if (error != null) {
+                reject(error);
+                return;
+            }
+            report.setReceived(report.getReceived() + 1);
+            films.add(film);
+            positions.add(position++);
+            if (films.size() == chunkSize) {
+                write();
+            }
+        }
+
+        void abort(String reason) {
+            report.abort(position, reason);
+        }
+
+        FilmImportReport finish() {
+            write();
+            report.finish(start);
+            log.info("Импорт фильмов: получено {}, добавлено {}, отклонено {}, {} мс, {} фильмов/с",
+                    report.getReceived(), report.getImported(), report.getRejected(), report.getElapsedMillis(),
+                    Math.round(report.getFilmsPerSecond()));
+            return report;
+        }
+
+        private void write() {
+            if (films.isEmpty()) {
+                return;
+            }
+            try {
+                filmStorage.createAll(films);
+                report.setImported(report.getImported() + films.size());
+            } catch (DataIntegrityViolationException | MPAException | GenreException | NotFoundException e) {
+                // Пачка откатилась целиком (например, режиссера удалили после проверки по кэшу):
+                // фильмы записываются по одному, отклонённые попадают в отчёт
+                log.warn("Пачка фильмов отклонена ({}), запись по одному", e.getMessage());
+                for (int i = 0; i < films.size(); i++) {
+                    try {
+                        filmStorage.create(films.get(i));
+                        report.setImported(report.getImported() + 1);
+                    } catch (DataIntegrityViolationException | MPAException | GenreException | NotFoundException single) {
+                        report.reject(positions.get(i), single.getMessage());
+                    }
+                }
+            }
+            films.clear();
+            positions.clear();
+        }
+    }
+}
@@ -3,10 +3,17 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.LikeWriteBuffer;
 import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.TrendingIndex;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.Instant;
 import java.util.List;
 
 @Slf4j
@@ -15,26 +22,69 @@ public class FilmLikeService {
 
     private final FilmStorage filmStorage;
     private final LikeStorage likeStorage;
+    private final UserStorage userStorage;
+    private final PopularityLeaderboard leaderboard;
+    private final TrendingIndex trendingIndex;
+    private final LikeWriteBuffer likeWriteBuffer;
 
-    public FilmLikeService(@Qualifier("filmDbStorage") FilmStorage filmStorage, LikeStorage likeStorage) {
+    public FilmLikeService(@Qualifier("filmDbStorage") FilmStorage filmStorage, LikeStorage likeStorage,
+                           UserStorage userStorage, PopularityLeaderboard leaderboard, TrendingIndex trendingIndex,
+                           LikeWriteBuffer likeWriteBuffer) {
         this.filmStorage = filmStorage;
         this.likeStorage = likeStorage;
+        this.userStorage = userStorage;
+        this.leaderboard = leaderboard;
+        this.trendingIndex = trendingIndex;
+        this.likeWriteBuffer = likeWriteBuffer;
+    }
 
+    // true - лайк действительно поставлен; повторный лайк ничего не меняет
+    public boolean addLike(Integer userId, Integer filmId) {
+        if (likeWriteBuffer.isEnabled()) {
+            // Отложенная запись: в базу лайк попадёт при сбросе буфера, поэтому ссылки проверяются заранее -
+            // фильм по резидентному рейтингу, пользователь по базе
+            validateFilmExists(filmId);
+            validateUserExists(userId);
+            return likeWriteBuffer.addLike(userId, filmId, Instant.now().getEpochSecond());
+        }
+        return likeStorage.addLike(userId, filmId);
     }
 
-    public void addLike(Integer userId, Integer filmId) {
-        likeStorage.addLike(userId, filmId);
-   }
+    // true - лайк действительно снят; снятие отсутствующего лайка ничего не меняет
+    public boolean removeLike(Integer userId, Integer filmId) {
+        if (likeWriteBuffer.isEnabled()) {
+            validateFilmExists(filmId);
+            validateUserExists(userId);
+            return likeWriteBuffer.removeLike(userId, filmId);
+        }
+        return likeStorage.removeLike(userId, filmId);
+    }
 
-    public void removeLike(Integer userId, Integer filmId) {
-            likeStorage.removeLike(userId, filmId);
+    // Те же ошибки, что и у LikeDbStorage
+    private void validateFilmExists(Integer filmId) {
+        if (!leaderboard.hasFilm(filmId)) {
+            throw new IllegalArgumentException("Фильма с id " + filmId + " не существует.");
+        }
+    }
+
+    // Без проверки лайк несуществующего пользователя был бы подтверждён клиенту и отклонён только при сбросе
+    private void validateUserExists(Integer userId) {
+        if (userStorage.getUserById(userId).isEmpty()) {
+            throw new NotFoundException("Пользователь с id " + userId + " не найден");
+        }
     }
 
     public List<Film> getTopFilms(int count) {
         try {
-            return filmStorage.getPopularFilms(count);
+            // Порядок берётся из резидентного рейтинга, из базы загружаются только сами count фильмов
+            return filmStorage.getFilmsByIds(leaderboard.getTop(count));
         } catch (FilmNotFoundException e) {
             throw new FilmNotFoundException("Фильм не найден");
         }
     }
+
+    // Фильмы с наибольшим числом недавних лайков: вес лайка затухает экспоненциально с его возрастом
+    public List<Film> getTrendingFilms(int count) {
+        return filmStorage.getFilmsByIds(trendingIndex.getTop(count));
+    }
 }
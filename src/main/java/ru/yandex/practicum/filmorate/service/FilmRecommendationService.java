@@ -1,89 +1,80 @@
 package ru.yandex.practicum.filmorate.service;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.index.CoLikeIndex;
+import ru.yandex.practicum.filmorate.index.RecommendationScorer;
+import ru.yandex.practicum.filmorate.model.CacheStats;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.*;
 import ru.yandex.practicum.filmorate.exceptions.*;
 
 
 import java.util.*;
-import java.util.stream.Collectors;
 
-@AllArgsConstructor
 @Service
 @Slf4j
 public class FilmRecommendationService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
-    private final LikeStorage likeStorage;
-
-    private Map<User, Set<Film>> loadData() {
-        Map<User, Set<Film>> data = new HashMap<>();
-        Collection<User> users = userStorage.findAll();
-        for (User user : users) {
-            List<Integer> userLikes = getLikedFilmIdsByUser(user.getId());
-            Set<Film> likedFilms = userLikes.stream()
-                                            .map(filmId -> filmStorage.getFilmById(filmId).orElse(null))
-                                            .filter(Objects::nonNull)
-                                            .collect(Collectors.toSet());
-            data.put(user, likedFilms);
-            log.info("Пользователь {} лайкнул {} фильмов", user.getId(), likedFilms.size());
-        }
-        log.info("Данные загружены: {}", data);
-        return data;
-    }
-
-    private List<Integer> getLikedFilmIdsByUser(Integer userId) {
-        List<Integer> likedFilmIds = likeStorage.getLikedFilmIds(userId);
-        return likedFilmIds;
+    private final RecommendationScorer scorer;
+    private final CoLikeIndex coLikeIndex;
+    private final RecommendationCache cache;
+    private final boolean itemBased;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public FilmRecommendationService(FilmStorage filmStorage,
+                                     UserStorage userStorage,
+                                     RecommendationScorer scorer,
+                                     CoLikeIndex coLikeIndex,
+                                     RecommendationCache cache,
+                                     @Value("${filmorate.recommendations.item-based:false}") boolean itemBased,
+                                     @Value("${filmorate.recommendations.default-limit:10}") int defaultLimit,
+                                     @Value("${filmorate.recommendations.max-limit:100}") int maxLimit) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.scorer = scorer;
+        this.coLikeIndex = coLikeIndex;
+        this.cache = cache;
+        this.itemBased = itemBased;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
     }
 
-    public List<Film> getRecommendations(Integer userId) {
-        User user = userStorage.getUserById(userId)
+    public List<Film> getRecommendations(Integer userId, Integer limit) {
+        userStorage.getUserById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("User with ID " + userId + " not found"));
-
-        Map<User, Set<Film>> data = loadData();
-        return getRecommendationsForUser(user, data);
-    }
-
-    private List<Film> getRecommendationsForUser(User user, Map<User, Set<Film>> data) {
-        log.info("Получение рекомендаций для пользователя {}", user.getId());
-        Set<Film> recommendedFilms = new HashSet<>();
-        Set<Film> userLikedFilms = data.getOrDefault(user, Collections.emptySet());
-
-        if (userLikedFilms.isEmpty()) {
-            log.info("Пользователь {} не лайкал фильмы", user.getId());
-            return new ArrayList<>(recommendedFilms);
+        if (limit != null && limit <= 0) {
+            throw new ValidationException("Количество рекомендаций должно быть положительным");
         }
+        int effectiveLimit = limit == null ? defaultLimit : Math.min(limit, maxLimit);
 
-        for (Map.Entry<User, Set<Film>> entry : data.entrySet()) {
-            User otherUser = entry.getKey();
-            if (otherUser.equals(user)) {
-                continue;
-            }
+        log.info("Получение рекомендаций для пользователя {}, не более {}", userId, effectiveLimit);
+        List<Integer> filmIds = cache.get(userId, effectiveLimit);
+        if (filmIds == null) {
+            filmIds = compute(userId, effectiveLimit);
+        }
+        // Фильмы загружаются одной пачкой только для итогового списка
+        return filmStorage.getFilmsByIds(filmIds);
+    }
 
-            Set<Film> otherUserLikedFilms = entry.getValue();
-            Set<Film> commonLikedFilms = new HashSet<>(userLikedFilms);
-            commonLikedFilms.retainAll(otherUserLikedFilms);
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
 
-            if (!commonLikedFilms.isEmpty()) {
-                for (Film film : otherUserLikedFilms) {
-                    if (!userLikedFilms.contains(film)) {
-                        recommendedFilms.add(film);
-                    }
-                }
-                log.info("  Пользователь {} лайкнул фильмы: {}. Общие с пользователем {} {}", otherUser.getId(), otherUserLikedFilms.size(), user.getId(), commonLikedFilms);
-            }
+    private List<Integer> compute(int userId, int limit) {
+        long version = cache.version();
+        if (itemBased) {
+            // item-based: соседи фильмов пользователя вместо поиска похожих пользователей.
+            // Ответ зависит от чужих лайков на его фильмы, поэтому кроме своих лайков его ограничивает только TTL
+            List<Integer> filmIds = coLikeIndex.recommend(userId, limit);
+            cache.put(userId, limit, filmIds, List.of(), version);
+            return filmIds;
         }
-        log.info("Рекомендованные фильмы для пользователя {}: {}", user.getId(), recommendedFilms);
-        return new ArrayList<>(recommendedFilms);
+        RecommendationScorer.Result result = scorer.score(userId, limit);
+        cache.put(userId, limit, result.filmIds(), result.neighbourIds(), version);
+        return result.filmIds();
     }
 }
-
-
-
-
-
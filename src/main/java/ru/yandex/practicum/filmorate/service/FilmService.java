@@ -3,14 +3,19 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.storage.DirectorStorage;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -18,6 +23,8 @@ public class FilmService {
 
     private final FilmStorage filmStorage;
     private final DirectorStorage directorStorage;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
 
     public Film getFilmById(Integer id) {
         return filmStorage.getFilmById(id)
@@ -28,6 +35,14 @@ public class FilmService {
         return filmStorage.findAll();
     }
 
+    public Page<Film> findPage(String cursor, int limit) {
+        return filmStorage.findPage(cursor, limit);
+    }
+
+    public void streamAll(Consumer<List<Film>> action) {
+        filmStorage.streamAll(action);
+    }
+
     public Film create(Film film) {
         return filmStorage.create(film);
     }
@@ -36,17 +51,28 @@ public class FilmService {
         return filmStorage.update(film);
     }
 
-    public List<Film> getSearch(String query, String by) {
+    public List<Film> getSearch(String query, String by, boolean fuzzy, Integer after, Integer limit) {
 
         if (!by.contains("director") && !by.contains("title")) {
             throw new ValidationException("Не верный критерий поиска");
+        } else if (limit != null && limit <= 0) {
+            throw new IncorrectParameterException("Размер страницы должен быть положительным");
         } else {
-            return filmStorage.getSearch(query, by);
+            return filmStorage.getSearch(query, by, fuzzy, after, limit == null ? Integer.MAX_VALUE : limit);
+        }
+    }
+
+    public List<Film> getSuggestions(String prefix, int limit) {
+        if (limit <= 0) {
+            throw new IncorrectParameterException("Количество подсказок должно быть положительным");
         }
+        // Готовый top-K узла префиксного дерева: из базы загружаются только сами подсказки
+        return filmStorage.getFilmsByIds(searchIndex.suggest(prefix, limit));
     }
 
     public List<Film> getPopularFilms(int count, Integer genreId, Integer year) {
-        return filmStorage.getPopularFilms(count, genreId, year);
+        // Готовый рейтинг по жанру/году: из базы загружаются только сами count фильмов
+        return filmStorage.getFilmsByIds(leaderboard.getTop(count, genreId, year));
     }
 
     public void deleteFilmById(Integer id) {
@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.dao.UserFeedEventDbStorage;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.LikeBatchReport;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.UserFeedEvent;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Пакетная загрузка лайков для миграций и импорта от партнёров.
+// Тело читается потоком (JSON-массив или NDJSON) и в памяти держится не больше одной пачки chunk-size операций.
+// Ссылки проверяются без базы: фильмы по PopularityLeaderboard, пользователи по снимку id на начало загрузки.
+// Каждая пачка пишется одной транзакцией вместе с событиями ленты (LikeStorage.applyBatch).
+// В режиме отложенной записи операции идут через LikeWriteBuffer, который сам пишет их пачками
+@Slf4j
+@Service
+public class LikeBatchService {
+    private final ObjectMapper objectMapper;
+    private final LikeStorage likeStorage;
+    private final UserStorage userStorage;
+    private final UserFeedEventDbStorage userFeedEventDbStorage;
+    private final PopularityLeaderboard leaderboard;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final int chunkSize;
+
+    public LikeBatchService(ObjectMapper objectMapper, LikeStorage likeStorage, UserStorage userStorage,
+                            UserFeedEventDbStorage userFeedEventDbStorage, PopularityLeaderboard leaderboard,
+                            LikeWriteBuffer likeWriteBuffer,
+                            @Value("${filmorate.likes.batch.chunk-size:1000}") int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.likeStorage = likeStorage;
+        this.userStorage = userStorage;
+        this.userFeedEventDbStorage = userFeedEventDbStorage;
+        this.leaderboard = leaderboard;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.chunkSize = chunkSize;
+    }
+
+    public LikeBatchReport ingest(InputStream body) {
+        int[] userIds = userStorage.findAllIds();
+        LikeBatchReport report = new LikeBatchReport();
+        List<LikeOperation> chunk = new ArrayList<>(chunkSize);
+        List<Long> positions = new ArrayList<>(chunkSize);
+        long position = 0;
+        try (MappingIterator<JsonNode> items = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            while (items.hasNextValue()) {
+                JsonNode item = items.nextValue();
+                report.setReceived(report.getReceived() + 1);
+                LikeOperation operation = parse(item);
+                String error = operation == null ? "Ожидается объект {userId, filmId, op}, op - ADD или REMOVE"
+                        : validate(operation, userIds);
+                if (error != null) {
+                    report.reject(position, error);
+                } else {
+                    chunk.add(operation);
+                    positions.add(position);
+                }
+                position++;
+                if (chunk.size() == chunkSize) {
+                    write(chunk, positions, report);
+                    chunk.clear();
+                    positions.clear();
+                }
+            }
+        } catch (IOException e) {
+            // Синтаксическую ошибку в потоке не обойти: уже записанные пачки остаются, хвост не читается
+            report.abort(position, "Поток прерван: " + e.getMessage());
+        }
+        write(chunk, positions, report);
+        log.info("Пакетная загрузка лайков: получено {}, применено {}, без изменений {}, отклонено {}",
+                report.getReceived(), report.getApplied(), report.getUnchanged(), report.getRejected());
+        return report;
+    }
+
+    private static LikeOperation parse(JsonNode item) {
+        if (!item.isObject() || !isInt(item.get("userId")) || !isInt(item.get("filmId"))
+                || item.get("op") == null || !item.get("op").isTextual()) {
+            return null;
+        }
+        String op = item.get("op").asText().toUpperCase(Locale.ROOT);
+        if (!op.equals(LikeOperation.ADD) && !op.equals(LikeOperation.REMOVE)) {
+            return null;
+        }
+        return new LikeOperation(item.get("userId").intValue(), item.get("filmId").intValue(), op);
+    }
+
+    private static boolean isInt(JsonNode value) {
+        return value != null && value.isIntegralNumber() && value.canConvertToInt();
+    }
+
+    private String validate(LikeOperation operation, int[] userIds) {
+        if (Arrays.binarySearch(userIds, operation.getUserId()) < 0) {
+            return "Пользователь с id " + operation.getUserId() + " не найден";
+        }
+        if (!leaderboard.hasFilm(operation.getFilmId())) {
+            return "Фильма с id " + operation.getFilmId() + " не существует.";
+        }
+        return null;
+    }
+
+    private void write(List<LikeOperation> chunk, List<Long> positions, LikeBatchReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        long timestamp = Instant.now().toEpochMilli();
+        if (likeWriteBuffer.isEnabled()) {
+            for (LikeOperation operation : chunk) {
+                report.count(writeBuffered(operation, timestamp));
+            }
+            return;
+        }
+        try {
+            for (boolean changed : likeStorage.applyBatch(chunk, timestamp)) {
+                report.count(changed);
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Пачка откатилась целиком (пользователя или фильм удалили после проверки, ту же пару
+            // одновременно лайкнули через API): операции повторяются по одной, отклонённые попадают в отчёт
+            log.warn("Пачка лайков отклонена ({}), запись по одной", e.getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    report.count(writeSingle(chunk.get(i), timestamp));
+                } catch (DataIntegrityViolationException | IllegalArgumentException single) {
+                    report.reject(positions.get(i), single.getMessage());
+                }
+            }
+        }
+    }
+
+    private boolean writeBuffered(LikeOperation operation, long timestamp) {
+        boolean changed = operation.isAdd()
+                ? likeWriteBuffer.addLike(operation.getUserId(), operation.getFilmId(), timestamp / 1000)
+                : likeWriteBuffer.removeLike(operation.getUserId(), operation.getFilmId());
+        if (changed) {
+            likeWriteBuffer.addEvent(event(operation, timestamp));
+        }
+        return changed;
+    }
+
+    private boolean writeSingle(LikeOperation operation, long timestamp) {
+        boolean changed = operation.isAdd()
+                ? likeStorage.addLike(operation.getUserId(), operation.getFilmId())
+                : likeStorage.removeLike(operation.getUserId(), operation.getFilmId());
+        if (changed) {
+            userFeedEventDbStorage.addUserEvent(event(operation, timestamp));
+        }
+        return changed;
+    }
+
+    private static UserFeedEvent event(LikeOperation operation, long timestamp) {
+        return new UserFeedEvent(0, operation.getUserId(), "LIKE", operation.getOp(), operation.getFilmId(), timestamp);
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+// Сверка films.likes_count с film_likes: при старте (в том числе после добавления колонки в старую базу)
+// и по расписанию, на случай правок данных в обход LikeDbStorage
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikesCountRepairJob {
+    private final LikeStorage likeStorage;
+
+    @PostConstruct
+    @Scheduled(cron = "${filmorate.likes-count.repair-cron:0 0 4 * * *}")
+    public void repair() {
+        int repaired = likeStorage.repairLikesCount();
+        if (repaired > 0) {
+            log.warn("Счётчики лайков исправлены у {} фильмов", repaired);
+        } else {
+            log.info("Счётчики лайков совпадают с film_likes");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Ограниченный по размеру (LRU) и по времени жизни кэш рекомендаций.
+// Ответ зависит только от лайков самого пользователя и его соседей, поэтому запись сбрасывается,
+// как только кто-то из них меняет лайки. Каждое изменение лайков получает номер, и для пользователя
+// запоминается номер последнего: посчитанный ответ не попадает в кэш, только если за время расчёта
+// менялись лайки самого пользователя или его соседей, чужие изменения результат не отбрасывают.
+@Slf4j
+@Component
+public class RecommendationCache {
+
+    private record Key(int userId, int limit) {
+    }
+
+    private record Entry(List<Integer> filmIds, List<Integer> neighbourIds, long expiresAt) {
+    }
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Пользователь -> записи, которые устаревают при изменении его лайков
+    private final Map<Integer, Set<Key>> dependents = new HashMap<>();
+    // Пользователь -> номер последнего изменения его лайков, растёт не больше числа пользователей
+    private final Map<Integer, Long> userVersions = new HashMap<>();
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public RecommendationCache(@Value("${filmorate.recommendations.cache.max-size:10000}") int maxSize,
+                               @Value("${filmorate.recommendations.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    // Номер последнего изменения лайков; берётся перед расчётом и передаётся в put
+    public synchronized long version() {
+        return version;
+    }
+
+    // null, если записи нет или она устарела
+    public synchronized List<Integer> get(int userId, int limit) {
+        Key key = new Key(userId, limit);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() < System.currentTimeMillis()) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.filmIds();
+    }
+
+    public synchronized void put(int userId, int limit, List<Integer> filmIds, List<Integer> neighbourIds,
+                                 long computedAtVersion) {
+        if (maxSize <= 0 || changedSince(userId, computedAtVersion)) {
+            return;
+        }
+        for (Integer neighbourId : neighbourIds) {
+            if (changedSince(neighbourId, computedAtVersion)) {
+                return;
+            }
+        }
+        Key key = new Key(userId, limit);
+        remove(key);
+        entries.put(key, new Entry(filmIds, neighbourIds, System.currentTimeMillis() + ttlMillis));
+        dependents.computeIfAbsent(userId, id -> new HashSet<>()).add(key);
+        for (Integer neighbourId : neighbourIds) {
+            dependents.computeIfAbsent(neighbourId, id -> new HashSet<>()).add(key);
+        }
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize) {
+            Map.Entry<Key, Entry> evicted = eldest.next();
+            eldest.remove();
+            unlink(evicted.getKey(), evicted.getValue());
+            evictions++;
+        }
+    }
+
+    @EventListener
+    public synchronized void onLikeChanged(LikeChangedEvent event) {
+        userVersions.put(event.userId(), ++version);
+        Set<Key> keys = dependents.remove(event.userId());
+        if (keys == null) {
+            return;
+        }
+        for (Key key : keys) {
+            remove(key);
+            invalidations++;
+        }
+        log.debug("Лайк пользователя {}: сброшено {} записей кэша рекомендаций", event.userId(), keys.size());
+    }
+
+    public synchronized CacheStats getStats() {
+        long requests = hits + misses;
+        double hitRate = requests == 0 ? 0 : (double) hits / requests;
+        return new CacheStats(hits, misses, evictions, invalidations, entries.size(), hitRate);
+    }
+
+    private boolean changedSince(int userId, long computedAtVersion) {
+        return userVersions.getOrDefault(userId, 0L) > computedAtVersion;
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            unlink(key, entry);
+        }
+    }
+
+    private void unlink(Key key, Entry entry) {
+        unlink(key, key.userId());
+        for (Integer neighbourId : entry.neighbourIds()) {
+            unlink(key, neighbourId);
+        }
+    }
+
+    private void unlink(Key key, int userId) {
+        Set<Key> keys = dependents.get(userId);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                dependents.remove(userId);
+            }
+        }
+    }
+}
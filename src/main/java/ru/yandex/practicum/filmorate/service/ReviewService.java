@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import ru.yandex.practicum.filmorate.dao.ReviewStorage;
 import ru.yandex.practicum.filmorate.exceptions.EntityNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.Review;
 import java.util.List;
 
@@ -70,6 +71,13 @@ public class ReviewService {
         return reviews;
     }
 
+    public Page<Review> getReviewsPage(Integer filmId, String cursor, int limit) {
+        log.info("Fetching reviews page for film ID: {}, limit: {}", filmId, limit);
+        Page<Review> page = reviewStorage.getReviewsPage(filmId, cursor, limit);
+        log.info("Fetched {} reviews.", page.getItems().size());
+        return page;
+    }
+
     public void addLike(Integer reviewId, Integer userId) {
         log.info("Adding like to review ID: {} by user ID: {}", reviewId, userId);
         if (!reviewStorage.existsById(reviewId)) {
@@ -2,8 +2,10 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dao.LikeWriteBuffer;
 import ru.yandex.practicum.filmorate.dao.UserFeedEventDbStorage;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.UserFeedEvent;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 import java.util.List;
@@ -13,10 +15,13 @@ import java.util.List;
 public class UserFeedEventService {
     private final UserFeedEventDbStorage userFeedEventDbStorage;
     private final UserStorage userStorage;
+    private final LikeWriteBuffer likeWriteBuffer;
 
-    public UserFeedEventService(UserFeedEventDbStorage userFeedEventDbStorage, UserStorage userStorage) {
+    public UserFeedEventService(UserFeedEventDbStorage userFeedEventDbStorage, UserStorage userStorage,
+                                LikeWriteBuffer likeWriteBuffer) {
         this.userFeedEventDbStorage = userFeedEventDbStorage;
         this.userStorage = userStorage;
+        this.likeWriteBuffer = likeWriteBuffer;
     }
 
     public List<UserFeedEvent> getUserFeed(Integer userId) {
@@ -28,6 +33,13 @@ public class UserFeedEventService {
         return userFeed;
     }
 
+    public Page<UserFeedEvent> getUserFeedPage(Integer userId, String cursor, int limit) {
+        validateNotFound(userId);
+        Page<UserFeedEvent> page = userFeedEventDbStorage.getUserFeedPage(userId, cursor, limit);
+        log.info("Получена страница ленты пользователя с ID = : {}, кол-во событий: {}", userId, page.getItems().size());
+        return page;
+    }
+
     private void validateNotFound(int id) {
         userStorage.getUserById(id)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id = " + id + " не найден"));
@@ -37,6 +49,11 @@ public class UserFeedEventService {
         log.info("Добавление события типа \"{}\" для операции \"{}\" для пользователя id = {} в БД",
                 event.getEventType(), event.getOperation(), event.getUserId());
 
+        if (likeWriteBuffer.isEnabled() && "LIKE".equals(event.getEventType())) {
+            // События о лайках пишутся в базу вместе с самими лайками при сбросе буфера
+            likeWriteBuffer.addEvent(event);
+            return;
+        }
         userFeedEventDbStorage.addUserEvent(event);
         log.info("Событие типа \"{}\" для операции \"{}\" для пользователя id = {} добавлено в БД",
                 event.getEventType(), event.getOperation(), event.getUserId());
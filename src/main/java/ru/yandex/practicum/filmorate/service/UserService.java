@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dao.UserFeedEventDbStorage;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
@@ -14,6 +15,7 @@ import ru.yandex.practicum.filmorate.storage.UserStorage;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -57,6 +59,10 @@ public class UserService {
 
     }
 
+    public Page<User> getFriendsPage(Integer userId, String cursor, int limit) {
+        return friendshipStorage.getFriendsPage(userId, cursor, limit);
+    }
+
     public List<User> getCommonFriends(Integer userId1, Integer userId2) {
         return friendshipStorage.getCommonFriends(userId1, userId2);
     }
@@ -65,6 +71,14 @@ public class UserService {
         return userStorage.findAll();
     }
 
+    public Page<User> findPage(String cursor, int limit) {
+        return userStorage.findPage(cursor, limit);
+    }
+
+    public void streamAll(Consumer<List<User>> action) {
+        userStorage.streamAll(action);
+    }
+
     public User create(User user) {
         return userStorage.create(user);
     }
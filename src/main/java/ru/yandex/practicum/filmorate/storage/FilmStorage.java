@@ -1,10 +1,12 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
@@ -12,17 +14,27 @@ public interface FilmStorage {
 
     Film update(Film film);
 
+    // Пакетная запись фильмов одной транзакцией; неверная ссылка на справочник отклоняет всю пачку
+    // с тем же исключением, что и create
+    List<Film> createAll(List<Film> films);
+
     Collection<Film> findAll();
 
+    // Страница фильмов по возрастанию id; cursor == null - первая страница
+    Page<Film> findPage(String cursor, int limit);
+
+    // Все фильмы пачками по порядку id, каждая пачка уже с жанрами, режиссерами и MPA
+    void streamAll(Consumer<List<Film>> action);
+
     Optional<Film> getFilmById(Integer id);
 
-    List<Film> getPopularFilms(Integer count);
+    List<Film> getFilmsByIds(List<Integer> ids);
 
     List<Film> getDirectorSort(Integer directorId, String sortBy);
 
-    List<Film> getSearch(String query, String by);
+    Page<Film> getDirectorSortPage(Integer directorId, String sortBy, String cursor, int limit);
 
-    List<Film> getPopularFilms(int count, Integer genreId, Integer year);
+    List<Film> getSearch(String query, String by, boolean fuzzy, Integer after, int limit);
 
     void deleteFilmById(Integer id);
 
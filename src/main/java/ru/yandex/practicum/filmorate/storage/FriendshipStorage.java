@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
@@ -11,6 +12,9 @@ public interface FriendshipStorage {
 
      List<User> getAllFriends(Integer id);
 
+     // Страница друзей по возрастанию их id
+     Page<User> getFriendsPage(Integer id, String cursor, int limit);
+
      List<User> getCommonFriends(Integer userId, Integer friendId);
 
      boolean isFriend(Integer userId, Integer friendId);
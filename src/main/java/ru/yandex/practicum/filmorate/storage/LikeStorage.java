@@ -1,13 +1,24 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
 import java.util.List;
 
 public interface LikeStorage {
-    void addLike(Integer userId, Integer filmId);
+    // true - лайк поставлен, false - он уже стоял
+    boolean addLike(Integer userId, Integer filmId);
+
+    // true - лайк снят, false - его не было
+    boolean removeLike(Integer userId, Integer filmId);
 
-    void removeLike(Integer userId, Integer filmId);
+    // Применяет пачку операций по порядку одной транзакцией и в ней же пишет события ленты о фактических
+    // изменениях с временем timestamp (мс). Для каждой операции возвращает, изменила ли она что-то
+    boolean[] applyBatch(List<LikeOperation> operations, long timestamp);
 
     List<Integer> getLikedFilmIds(Integer userId);
 
+    // Пересчитывает films.likes_count по film_likes, возвращает число исправленных фильмов
+    int repairLikesCount();
+
 //    boolean isLikeAlreadyAdded(Integer filmId, Integer userId);
 }
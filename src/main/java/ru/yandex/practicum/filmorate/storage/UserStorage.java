@@ -1,9 +1,12 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
@@ -13,6 +16,15 @@ public interface UserStorage {
 
     Collection<User> findAll();
 
+    // Страница пользователей по возрастанию id; cursor == null - первая страница
+    Page<User> findPage(String cursor, int limit);
+
+    // Все пользователи пачками по порядку id
+    void streamAll(Consumer<List<User>> action);
+
+    // Идентификаторы всех пользователей по возрастанию: снимок для проверки ссылок в пакетных операциях
+    int[] findAllIds();
+
     void deleteUserById(Integer id);
 
     Optional<User> getUserById(Integer id);
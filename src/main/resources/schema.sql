@@ -30,9 +30,14 @@ CREATE TABLE IF NOT EXISTS films (
   description varchar(255) NOT NULL,
   RELEASE_DATE DATE NOT NULL,
   duration INTEGER NOT NULL,
-  mpa INTEGER REFERENCES MPA_Ratings(MPARating_id)
+  mpa INTEGER REFERENCES MPA_Ratings(MPARating_id),
+  likes_count INTEGER DEFAULT 0 NOT NULL -- Число лайков, поддерживается вместе с film_likes
 );
 
+-- Для баз, созданных до появления счётчика; значения восстанавливает LikesCountRepairJob
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INTEGER DEFAULT 0 NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_films_likes_count ON films (likes_count DESC, id DESC);
+
 
 CREATE TABLE IF NOT EXISTS genres (
     genre_id INT AUTO_INCREMENT PRIMARY KEY,
@@ -56,9 +61,13 @@ CREATE TABLE IF NOT EXISTS friendships (
 CREATE TABLE IF NOT EXISTS film_likes (
   user_id INT REFERENCES users(id) ON DELETE CASCADE,
   film_id INT REFERENCES films(id) ON DELETE CASCADE,
+  created_at BIGINT DEFAULT 0 NOT NULL, -- Время лайка в формате Unix timestamp (секунды)
   PRIMARY KEY (user_id, film_id)
 );
 
+-- Для баз, созданных до появления времени лайка: старые лайки считаются поставленными очень давно
+ALTER TABLE film_likes ADD COLUMN IF NOT EXISTS created_at BIGINT DEFAULT 0 NOT NULL;
+
 CREATE TABLE IF NOT EXISTS reviews (
     review_id INT AUTO_INCREMENT PRIMARY KEY,
     content TEXT NOT NULL,
@@ -101,4 +110,15 @@ CREATE TABLE IF NOT EXISTS user_feed (
     operation VARCHAR(50) NOT NULL,  -- ADD, REMOVE, UPDATE
     entity_id INTEGER NOT NULL,      -- ID сущности (фильм, отзыв, пользователь)
     timestamp BIGINT NOT NULL        -- Время события в формате Unix timestamp
-);
\ No newline at end of file
+);
+
+-- Вторичные индексы для горячих выборок (см. IndexAdvisor). CREATE INDEX IF NOT EXISTS применяется
+-- и к новой, и к уже существующей базе при каждом старте, как и ALTER TABLE выше.
+-- film_likes по film_id: лайки фильма, общие фильмы, удаление фильма
+CREATE INDEX IF NOT EXISTS idx_film_likes_film ON film_likes (film_id);
+-- Лента пользователя сразу в порядке времени
+CREATE INDEX IF NOT EXISTS idx_user_feed_user_timestamp ON user_feed (user_id, timestamp);
+-- Отзывы к фильму сразу в порядке полезности
+CREATE INDEX IF NOT EXISTS idx_reviews_film_useful ON reviews (film_id, useful);
+-- Обратные связи дружбы при удалении пользователя
+CREATE INDEX IF NOT EXISTS idx_friendships_friend ON friendships (friend_id);
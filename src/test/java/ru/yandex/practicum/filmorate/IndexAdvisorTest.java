@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.dao.IndexAdvisor;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import(IndexAdvisor.class)
+class IndexAdvisorTest {
+    private final IndexAdvisor indexAdvisor;
+
+    @Test
+    void hotLookupsUseSecondaryIndexes() {
+        assertThat(indexAdvisor.fullScans("SELECT film_id FROM film_likes WHERE film_id = ?")).isEmpty();
+        assertThat(indexAdvisor.fullScans("SELECT * FROM user_feed WHERE user_id = ? ORDER BY timestamp ASC")).isEmpty();
+        assertThat(indexAdvisor.fullScans("SELECT * FROM reviews WHERE film_id = ? ORDER BY useful DESC LIMIT ?")).isEmpty();
+        assertThat(indexAdvisor.fullScans("DELETE FROM friendships WHERE friend_id = ?")).isEmpty();
+    }
+
+    @Test
+    void flagsUnindexedLookup() {
+        List<String> scanned = indexAdvisor.fullScans("SELECT review_id FROM reviews WHERE content = ?");
+
+        assertThat(scanned).containsExactly("PUBLIC.REVIEWS");
+    }
+}
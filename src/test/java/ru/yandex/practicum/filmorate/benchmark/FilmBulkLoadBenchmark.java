@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.Validation;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dao.FilmHydrator;
+import ru.yandex.practicum.filmorate.dao.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportReport;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPARating;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
+
+import java.io.ByteArrayInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Ручной бенчмарк массовой загрузки каталога через FilmDbStorage.create: каждый фильм - одна транзакция
+// из INSERT фильма и по одному многострочному INSERT в film_genres и film_directors.
+// Затем то же число фильмов загружается через FilmImportService из NDJSON: разбор, проверка и запись
+// пачками по IMPORT_CHUNK_SIZE (цель - не меньше 50 000 фильмов/с в файловой H2). Хранилище здесь без
+// транзакционного прокси, поэтому каждый из трёх INSERT пачки фиксируется отдельно.
+// Запуск: main из IDE или через exec:java в test-classpath, с уровнем логов ru.yandex не ниже WARN.
+// Аргументы: [фильмов] [url базы], по умолчанию - H2 в памяти
+public class FilmBulkLoadBenchmark {
+    private static final int DIRECTORS = 1_000;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+    private static final int WARMUP_FILMS = 5_000;
+    private static final int IMPORT_CHUNK_SIZE = 1_000;
+
+    public static void main(String[] args) {
+        int films = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String url = args.length > 1 ? args[1] : "jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1";
+
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(url, "sa", "", true);
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        List<Object[]> directorRows = new ArrayList<>();
+        for (int i = 1; i <= DIRECTORS; i++) {
+            directorRows.add(new Object[]{"Режиссер " + i});
+        }
+        jdbc.batchUpdate("INSERT INTO directors (name) VALUES (?)", directorRows);
+        List<Integer> directorIds = jdbc.queryForList("SELECT id FROM directors", Integer.class);
+
+        // Индексы не подписаны на события: замеряется только запись в базу
+        LikeIndex likeIndex = new LikeIndex(jdbc, event -> { });
+        ReferenceDataCache referenceCache = new ReferenceDataCache(jdbc);
+        referenceCache.load();
+        FilmDbStorage storage = new FilmDbStorage(jdbc, likeIndex, new FilmHydrator(jdbc), event -> { },
+                new FilmSearchIndex(jdbc, likeIndex, 10), referenceCache);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        Random random = new Random(42);
+        load(storage, transaction, WARMUP_FILMS, directorIds, random);
+        long start = System.nanoTime();
+        long links = load(storage, transaction, films, directorIds, random);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("База: %s, фильмов: %d, строк связей: %d, время: %.2f с%n", url, films, links, seconds);
+        System.out.printf("Пропускная способность: %.0f фильмов/с, %.0f строк/с%n",
+                films / seconds, (films + links) / seconds);
+
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        FilmImportService importService = new FilmImportService(objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator(), storage, referenceCache, IMPORT_CHUNK_SIZE);
+        importService.importNdjson(ndjson(objectMapper, WARMUP_FILMS, directorIds, random));
+        ByteArrayInputStream body = ndjson(objectMapper, films, directorIds, random);
+        FilmImportReport report = importService.importNdjson(body);
+        System.out.printf("Импорт NDJSON: фильмов: %d, отклонено: %d, время: %d мс, %.0f фильмов/с%n",
+                report.getImported(), report.getRejected(), report.getElapsedMillis(), report.getFilmsPerSecond());
+        dataSource.destroy();
+    }
+
+    // Создаёт фильмы по одному, как POST /films; возвращает число вставленных строк связей
+    private static long load(FilmDbStorage storage, TransactionTemplate transaction, int films,
+                             List<Integer> directorIds, Random random) {
+        long links = 0;
+        for (int i = 0; i < films; i++) {
+            Film film = film(i, directorIds, random);
+            links += film.getGenres().size() + film.getDirectors().size();
+            transaction.executeWithoutResult(status -> storage.create(film));
+        }
+        return links;
+    }
+
+    // Тело запроса POST /films:import; собирается заранее, чтобы не замерять генерацию
+    private static ByteArrayInputStream ndjson(ObjectMapper objectMapper, int films, List<Integer> directorIds,
+                                               Random random) {
+        StringBuilder body = new StringBuilder();
+        try {
+            for (int i = 0; i < films; i++) {
+                body.append(objectMapper.writeValueAsString(film(i, directorIds, random))).append('\n');
+            }
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Фильм с 1-3 жанрами и 1-2 режиссерами; справочники заданы только идентификаторами, как в запросе
+    private static Film film(int number, List<Integer> directorIds, Random random) {
+        Set<Genre> genres = new HashSet<>();
+        int genreCount = 1 + random.nextInt(3);
+        while (genres.size() < genreCount) {
+            genres.add(new Genre(1 + random.nextInt(GENRES), null));
+        }
+        Set<Director> directors = new HashSet<>();
+        int directorCount = 1 + random.nextInt(2);
+        while (directors.size() < directorCount) {
+            directors.add(new Director(directorIds.get(random.nextInt(directorIds.size())), null));
+        }
+        return new Film(null, "Фильм " + number, "Описание фильма " + number,
+                LocalDate.of(1950 + random.nextInt(70), 1 + random.nextInt(12), 1 + random.nextInt(28)),
+                60 + random.nextInt(120), genres, new MPARating(1 + random.nextInt(MPA_RATINGS), null), directors);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.index.MinHashIndex;
+import ru.yandex.practicum.filmorate.index.RecommendationScorer;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Ручной бенчмарк рекомендаций на синтетических данных (~1 млн лайков).
+// Запуск: main из IDE или через exec:java в test-classpath. Аргументы: [пользователей] [фильмов] [лайков на пользователя]
+public class RecommendationBenchmark {
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 500;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int films = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int likesPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        LikeIndex likeIndex = generate(users, films, likesPerUser, new Random(42));
+        int processors = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Пользователей: %d, фильмов: %d, лайков: %d, ядер: %d%n",
+                users, films, (long) users * likesPerUser, processors);
+
+        MinHashIndex exact = new MinHashIndex(likeIndex, false, 0, 0);
+        report("последовательно", new RecommendationScorer(likeIndex, exact, RecommendationScorer.Similarity.JACCARD,
+                50, false, 0, 1), users);
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            RecommendationScorer scorer = new RecommendationScorer(likeIndex, exact,
+                    RecommendationScorer.Similarity.JACCARD, 50, true, 0, threads);
+            report("потоков: " + threads, scorer, users);
+            scorer.shutdown();
+        }
+
+        MinHashIndex lsh = new MinHashIndex(likeIndex, true, 16, 1);
+        lsh.rebuild();
+        report("LSH 16x1", new RecommendationScorer(likeIndex, lsh, RecommendationScorer.Similarity.JACCARD,
+                50, false, 0, 1), users);
+    }
+
+    // Популярность фильмов убывает степенным законом, как в реальных каталогах
+    private static LikeIndex generate(int users, int films, int likesPerUser, Random random) {
+        int[] userIds = new int[users * likesPerUser];
+        int[] filmIds = new int[users * likesPerUser];
+        int position = 0;
+        for (int userId = 1; userId <= users; userId++) {
+            int[] liked = IntStream.generate(() -> 1 + (int) (films * Math.pow(random.nextDouble(), 3)))
+                    .distinct()
+                    .limit(likesPerUser)
+                    .sorted()
+                    .toArray();
+            for (int filmId : liked) {
+                userIds[position] = userId;
+                filmIds[position] = filmId;
+                position++;
+            }
+        }
+        LikeIndex likeIndex = new LikeIndex(null, event -> {
+        });
+        likeIndex.rebuild(Arrays.copyOf(userIds, position), Arrays.copyOf(filmIds, position));
+        return likeIndex;
+    }
+
+    private static void report(String title, RecommendationScorer scorer, int users) {
+        Random random = new Random(7);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            scorer.recommend(1 + random.nextInt(users), 10);
+        }
+        long[] latencies = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            scorer.recommend(1 + random.nextInt(users), 10);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-16s p50 = %7.2f мс, p99 = %7.2f мс%n", title,
+                latencies[MEASURED_ROUNDS / 2] / 1e6, latencies[MEASURED_ROUNDS * 99 / 100] / 1e6);
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.index.PrefixTrie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Ручной бенчмарк дерева подсказок: объём памяти на миллион названий и время ответа на префикс.
+// Запуск: main из IDE или через exec:java в test-classpath, лучше с -Xmx4g. Аргументы: [названий] [top-K]
+public class SuggestBenchmark {
+    private static final String[] WORDS = {"star", "wars", "lord", "rings", "return", "king", "night", "day",
+            "matrix", "reloaded", "alien", "aliens", "back", "future", "terminator", "judgment", "the", "of",
+            "матрица", "перезагрузка", "ирония", "судьбы", "лёгким", "паром", "брат", "бриллиантовая", "рука",
+            "москва", "слезам", "не", "верит", "служебный", "роман", "кин-дза-дза", "сталкер", "солярис"};
+    private static final int QUERIES = 100_000;
+
+    public static void main(String[] args) {
+        int titles = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int topSize = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Random random = new Random(42);
+        int[] likes = new int[titles + 1];
+        for (int filmId = 1; filmId <= titles; filmId++) {
+            likes[filmId] = (int) (1000 * Math.pow(random.nextDouble(), 4));
+        }
+
+        List<String> keys = new ArrayList<>();
+        List<Integer> keyFilms = new ArrayList<>();
+        for (int filmId = 1; filmId <= titles; filmId++) {
+            String[] words = title(random).split(" ");
+            // Ключи - окончания названия с начала каждого слова, как в FilmSearchIndex
+            for (int i = 0; i < words.length; i++) {
+                keys.add(String.join(" ", Arrays.asList(words).subList(i, words.length)));
+                keyFilms.add(filmId);
+            }
+        }
+        String[] keyArray = keys.toArray(new String[0]);
+        int[] filmIds = keyFilms.stream().mapToInt(Integer::intValue).toArray();
+        keys = null;
+        keyFilms = null;
+
+        // Исходные массивы живы и до, и после построения, поэтому разница - это только само дерево:
+        // метки рёбер - копии подстрок ключей, а не ссылки на них
+        long before = usedMemory();
+        long start = System.nanoTime();
+        PrefixTrie trie = new PrefixTrie(topSize, filmId -> likes[filmId]);
+        trie.rebuild(keyArray, filmIds);
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        long bytes = usedMemory() - before;
+        System.out.printf("Названий: %d, ключей: %d, top-K: %d, построение: %d мс%n",
+                titles, keyArray.length, topSize, buildMillis);
+        System.out.printf("Память дерева: %.1f МБ, %.0f байт на название, %.1f МБ на миллион названий%n",
+                bytes / 1e6, (double) bytes / titles, bytes / 1e6 * 1_000_000 / titles);
+
+        String[] prefixes = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            prefixes[i] = word.substring(0, 1 + random.nextInt(word.length()));
+        }
+        long found = 0;
+        for (String prefix : prefixes) {
+            found += trie.top(prefix).length;
+        }
+        start = System.nanoTime();
+        for (String prefix : prefixes) {
+            found += trie.top(prefix).length;
+        }
+        System.out.printf("Подсказка: %.2f мкс на запрос (%d результатов)%n",
+                (System.nanoTime() - start) / 1e3 / QUERIES, found);
+        if (trie.top("").length == 0) {
+            System.out.println("Дерево пустое");
+        }
+    }
+
+    // Названия из 1-4 слов словаря и уникального "хвоста", чтобы ключи не совпадали целиком
+    private static String title(Random random) {
+        StringBuilder title = new StringBuilder();
+        int words = 1 + random.nextInt(4);
+        for (int i = 0; i < words; i++) {
+            title.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return title.append(Integer.toString(random.nextInt(Integer.MAX_VALUE), 36)).toString();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.film;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dao.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.dao.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dao.FilmHydrator;
+import ru.yandex.practicum.filmorate.dao.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MPARating;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Регрессия: жанры и режиссеры должны читаться только для возвращаемых фильмов, а не всей таблицей связей
+@JdbcTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({FilmDbStorage.class, DirectorDbStorage.class, LikeIndex.class, FilmHydrator.class, FilmSearchIndex.class,
+        ReferenceDataCache.class, PopularityLeaderboard.class, FilmHydrationTest.RowCountingConfig.class})
+public class FilmHydrationTest {
+    private static final int FILMS = 30;
+
+    private final FilmDbStorage filmDbStorage;
+    private final DirectorDbStorage directorDbStorage;
+    private final PopularityLeaderboard leaderboard;
+    private final RowCountingJdbcTemplate jdbc;
+
+    // Рейтинг узнаёт о фильмах только после фиксации, поэтому тесты рейтинга идут без общей транзакции
+    // и сами удаляют созданные фильмы
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testPopularFilmsReadAssociationsOnlyForReturnedFilms() {
+        Director director = new Director();
+        List<Integer> filmIds = new ArrayList<>();
+        try {
+            createFilms(director, filmIds);
+            jdbc.reset();
+
+            // Тот же путь, что у FilmService.getPopularFilms: порядок из рейтинга, фильмы одной пачкой
+            List<Film> films = filmDbStorage.getFilmsByIds(leaderboard.getTop(3, null, null));
+
+            assertEquals(3, films.size());
+            films.forEach(film -> assertEquals(2, film.getGenres().size()));
+            assertEquals(6, jdbc.rowsRead("FROM film_genres"));
+            assertEquals(3, jdbc.rowsRead("FROM film_directors"));
+        } finally {
+            deleteFilms(director, filmIds);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testPopularFilmsByYearReadAssociationsOnlyForReturnedFilms() {
+        Director director = new Director();
+        List<Integer> filmIds = new ArrayList<>();
+        try {
+            createFilms(director, filmIds);
+            jdbc.reset();
+
+            List<Film> films = filmDbStorage.getFilmsByIds(leaderboard.getTop(2, null, 2001));
+
+            assertEquals(2, films.size());
+            assertEquals(4, jdbc.rowsRead("FROM film_genres"));
+            assertEquals(2, jdbc.rowsRead("FROM film_directors"));
+        } finally {
+            deleteFilms(director, filmIds);
+        }
+    }
+
+    @Test
+    public void testCreateResolvesReferencesFromCacheWithoutQueries() {
+        createFilms();
+        jdbc.reset();
+
+        Film film = new Film();
+        film.setName("Cached");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2001, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new MPARating(1, null));
+        film.setGenres(Set.of(new Genre(2, null), new Genre(1, null)));
+        Film created = filmDbStorage.create(film);
+
+        // Имена подставлены из справочников, а сами справочники не читались
+        assertEquals("G", created.getMpa().getName());
+        assertEquals(List.of(1, 2), created.getGenres().stream().map(Genre::getId).toList());
+        assertEquals(0, jdbc.rowsRead("MPA_Ratings"));
+        assertEquals(0, jdbc.rowsRead("FROM genres"));
+        assertEquals(0, jdbc.rowsRead("FROM film_genres"));
+    }
+
+    private void createFilms() {
+        createFilms(new Director(), new ArrayList<>());
+    }
+
+    private void createFilms(Director director, List<Integer> filmIds) {
+        director.setName("Director");
+        directorDbStorage.create(director);
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000 + i % 3, 1, 1));
+            film.setDuration(100);
+            film.setMpa(new MPARating(1, "G"));
+            film.setGenres(Set.of(new Genre(1, "Комедия"), new Genre(2, "Драма")));
+            film.setDirectors(Set.of(director));
+            filmIds.add(filmDbStorage.create(film).getId());
+        }
+    }
+
+    private void deleteFilms(Director director, List<Integer> filmIds) {
+        filmIds.forEach(filmDbStorage::deleteFilmById);
+        if (director.getId() != null) {
+            directorDbStorage.delete(director.getId());
+        }
+    }
+
+    @TestConfiguration
+    static class RowCountingConfig {
+        @Bean
+        @Primary
+        RowCountingJdbcTemplate rowCountingJdbcTemplate(DataSource dataSource) {
+            return new RowCountingJdbcTemplate(dataSource);
+        }
+    }
+
+    // JdbcTemplate, который считает строки, прочитанные каждым SQL-запросом
+    static class RowCountingJdbcTemplate extends JdbcTemplate {
+        private final Map<String, Integer> rowsBySql = new ConcurrentHashMap<>();
+
+        RowCountingJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        void reset() {
+            rowsBySql.clear();
+        }
+
+        int rowsRead(String sqlFragment) {
+            return rowsBySql.entrySet().stream()
+                    .filter(entry -> entry.getKey().contains(sqlFragment))
+                    .mapToInt(Map.Entry::getValue)
+                    .sum();
+        }
+
+        @Override
+        public <T> T query(String sql, ResultSetExtractor<T> rse) {
+            return super.query(sql, counting(sql, rse));
+        }
+
+        @Override
+        public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+            String sql = psc instanceof SqlProvider provider ? provider.getSql() : String.valueOf(psc);
+            return super.query(psc, pss, counting(sql, rse));
+        }
+
+        private <T> ResultSetExtractor<T> counting(String sql, ResultSetExtractor<T> rse) {
+            return rs -> rse.extractData((ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                        Object result;
+                        try {
+                            result = method.invoke(rs, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                            rowsBySql.merge(sql, 1, Integer::sum);
+                        }
+                        return result;
+                    }));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.dao.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.model.Director;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Отдельная база в памяти: общий контекст остальных тестов рассчитывает на свою нумерацию фильмов.
+// Пачка из двух фильмов, чтобы импорт проходил через несколько транзакций
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:filmimport", "filmorate.films.import.chunk-size=2"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class FilmImportTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private DirectorDbStorage directorDbStorage;
+
+    private int directorId;
+
+    @BeforeEach
+    void setUp() {
+        directorId = directorDbStorage.create(new Director(null, "Режиссер " + System.nanoTime())).getId();
+    }
+
+    @Test
+    void ndjsonImportWritesValidFilmsWithLinksAndReportsRejected() throws Exception {
+        String body = String.join("\n",
+                film("Ndjson 1", "[{\"id\": 2}, {\"id\": 1}]", "[{\"id\": " + directorId + "}]"),
+                film("Ndjson 2", "[]", "[]"),
+                film("Ndjson 3", "[{\"id\": 999}]", "[]"),
+                film("", "[]", "[]"),
+                film("Ndjson 4", "[{\"id\": 3}]", "[]"));
+
+        mockMvc.perform(post("/films:import").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(5))
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.completed").value(true))
+                .andExpect(jsonPath("$.failures[0].item").value(2))
+                .andExpect(jsonPath("$.failures[1].item").value(3));
+
+        assertEquals(3, count("SELECT COUNT(*) FROM films WHERE name LIKE 'Ndjson %'"));
+        assertEquals(3, count("SELECT COUNT(*) FROM film_genres g JOIN films f ON f.id = g.film_id WHERE f.name LIKE 'Ndjson %'"));
+        int filmId = count("SELECT id FROM films WHERE name = 'Ndjson 1'");
+        mockMvc.perform(get("/films/{id}", filmId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genres[0].id").value(1))
+                .andExpect(jsonPath("$.directors[0].id").value(directorId));
+    }
+
+    @Test
+    void csvImportHandlesQuotedFieldsAndRejectsBadRows() throws Exception {
+        String body = "name,description,releaseDate,duration,mpa,genres,directors\r\n" +
+                "Csv 1,\"Описание, с запятой и \"\"кавычками\"\"\",2001-02-03,100,1,1|2," + directorId + "\r\n" +
+                "Csv 2,Описание,не дата,100,1,,\r\n" +
+                "Csv 3,\"Описание\nв две строки\",1890-01-01,100,1,,\r\n" +
+                "Csv 4,Описание,2005-05-05,90,,3,\r\n";
+
+        mockMvc.perform(post("/films:import").contentType("text/csv").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(4))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.failures[0].item").value(1))
+                .andExpect(jsonPath("$.failures[1].item").value(2));
+
+        int filmId = count("SELECT id FROM films WHERE name = 'Csv 1'");
+        mockMvc.perform(get("/films/{id}", filmId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("Описание, с запятой и \"кавычками\""))
+                .andExpect(jsonPath("$.genres.length()").value(2))
+                .andExpect(jsonPath("$.directors[0].id").value(directorId));
+    }
+
+    @Test
+    void csvWithoutRequiredColumnIsBadRequest() throws Exception {
+        mockMvc.perform(post("/films:import").contentType("text/csv").content("name,description,duration\nCsv,Описание,100\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private int count(String sql) {
+        return jdbc.queryForObject(sql, Integer.class);
+    }
+
+    private static String film(String name, String genres, String directors) {
+        return "{\"name\": \"" + name + "\", \"description\": \"Описание\", \"releaseDate\": \"2000-01-01\", " +
+                "\"duration\": 100, \"mpa\": {\"id\": 1}, \"genres\": " + genres + ", \"directors\": " + directors + "}";
+    }
+}
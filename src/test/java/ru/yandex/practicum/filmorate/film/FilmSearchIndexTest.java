@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.index.DirectorChangedEvent;
+import ru.yandex.practicum.filmorate.index.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FilmSearchIndexTest {
+
+    private LikeIndex likeIndex;
+    private FilmSearchIndex searchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        likeIndex = new LikeIndex(null, event -> {
+        });
+        searchIndex = new FilmSearchIndex(null, likeIndex, 2);
+        searchIndex.rebuild(
+                Map.of(1, "Крадущийся тигр", 2, "Тигр и дракон", 3, "Зелёная миля", 4, "Up"),
+                Map.of(10, "Ang Lee", 11, "Frank Darabont"),
+                Map.of(10, Set.of(1, 2), 11, Set.of(3)));
+        likeIndex.addLike(1, 2);
+        likeIndex.addLike(2, 2);
+        likeIndex.addLike(1, 3);
+    }
+
+    @Test
+    public void searchesSubstringIgnoringCaseRankedByLikes() {
+        assertEquals(List.of(2, 1), searchIndex.search("ТИГР", true, false));
+        assertEquals(List.of(4), searchIndex.search("u", true, false));
+        assertEquals(List.of(), searchIndex.search("тигр", false, true));
+    }
+
+    @Test
+    public void searchesByDirectorAndByBothWithoutDuplicates() {
+        assertEquals(List.of(2, 1), searchIndex.search("lee", false, true));
+        assertEquals(List.of(3), searchIndex.search("darab", true, true));
+        // Фильм 2 подходит и по названию, и по режиссёру, но возвращается один раз
+        assertEquals(List.of(2, 1), searchIndex.search("г", true, true).subList(0, 2));
+    }
+
+    @Test
+    public void followsFilmAndDirectorChanges() {
+        Director darabont = new Director();
+        darabont.setId(11);
+        Film film = new Film();
+        film.setId(4);
+        film.setName("Побег из Шоушенка");
+        film.setDirectors(new HashSet<>(Set.of(darabont)));
+        searchIndex.onFilmChanged(new FilmChangedEvent(4, film));
+
+        assertEquals(List.of(), searchIndex.search("up", true, false));
+        assertEquals(List.of(3, 4), searchIndex.search("darabont", false, true));
+
+        darabont.setName("Фрэнк Дарабонт");
+        searchIndex.onDirectorChanged(new DirectorChangedEvent(11, darabont));
+        assertEquals(List.of(), searchIndex.search("darabont", false, true));
+        assertEquals(List.of(3, 4), searchIndex.search("дарабонт", false, true));
+
+        searchIndex.onFilmChanged(new FilmChangedEvent(3, null));
+        assertEquals(List.of(4), searchIndex.search("дарабонт", false, true));
+    }
+
+    @Test
+    public void fuzzySearchToleratesTyposAndRanksCloserMatchesFirst() {
+        assertEquals(List.of(1), searchIndex.searchFuzzy("Кродущийся", true, false));
+        assertEquals(List.of(3), searchIndex.searchFuzzy("darabomt", false, true));
+        // Короткий запрос ищется точно: одна правка в четырёх символах находила бы почти всё
+        assertEquals(List.of(), searchIndex.searchFuzzy("тигп", true, false));
+
+        Film film = new Film();
+        film.setId(5);
+        film.setName("Тигр и дркон");
+        searchIndex.onFilmChanged(new FilmChangedEvent(5, film));
+        likeIndex.addLike(1, 5);
+        likeIndex.addLike(2, 5);
+        likeIndex.addLike(3, 5);
+        // Точное совпадение выше фильма с опечаткой, хотя лайков у него меньше
+        assertEquals(List.of(2, 5), searchIndex.searchFuzzy("тигр и дракон", true, true));
+    }
+
+    @Test
+    public void pagesThroughRankedResultsAfterLastSeenFilm() {
+        // "и" есть в названиях фильмов 1, 2 и 3; порядок по лайкам: 2, 3, 1
+        assertEquals(List.of(2, 3, 1), searchIndex.search("и", true, true));
+        assertEquals(List.of(2, 3), searchIndex.search("и", true, true, false, null, 2));
+        assertEquals(List.of(1), searchIndex.search("и", true, true, false, 3, 2));
+        assertEquals(List.of(), searchIndex.search("и", true, true, false, 1, 2));
+        assertThrows(IncorrectParameterException.class,
+                () -> searchIndex.search("и", true, true, false, 4, 2));
+    }
+
+    @Test
+    public void suggestsByWordPrefixFromTopOfNode() {
+        // В узле хранятся только два лучших фильма; фильм 2 лайкнут дважды, фильм 1 - ни разу
+        assertEquals(List.of(2, 1), searchIndex.suggest("ТИ", 10));
+        assertEquals(List.of(2), searchIndex.suggest("ти", 1));
+        assertEquals(List.of(2, 1), searchIndex.suggest("ang", 10));
+        assertEquals(List.of(), searchIndex.suggest("игр", 10));
+
+        likeIndex.addLike(1, 1);
+        likeIndex.addLike(2, 1);
+        likeIndex.addLike(3, 1);
+        searchIndex.onLikeChanged(new LikeChangedEvent(3, 1, true, 0, new int[]{1}));
+        assertEquals(List.of(1, 2), searchIndex.suggest("тигр", 10));
+        assertEquals(List.of(1, 2), searchIndex.suggest("", 10));
+    }
+
+    @Test
+    public void suggestionsFollowRenames() {
+        Film film = new Film();
+        film.setId(3);
+        film.setName("Зелёная миля");
+        searchIndex.onFilmChanged(new FilmChangedEvent(3, film));
+        assertEquals(List.of(), searchIndex.suggest("frank", 10));
+
+        film.setName("Мгла");
+        searchIndex.onFilmChanged(new FilmChangedEvent(3, film));
+        assertEquals(List.of(), searchIndex.suggest("мил", 10));
+        assertEquals(List.of(3), searchIndex.suggest("мгла", 10));
+    }
+}
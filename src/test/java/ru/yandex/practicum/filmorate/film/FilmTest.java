@@ -7,25 +7,35 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dao.DirectorDbStorage;
 import ru.yandex.practicum.filmorate.dao.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dao.FilmHydrator;
+import ru.yandex.practicum.filmorate.dao.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.dao.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.MPARating;
+import ru.yandex.practicum.filmorate.model.Page;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @JdbcTest
 @ActiveProfiles("test")
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({FilmDbStorage.class, DirectorDbStorage.class, FilmRowMapper.class})
+@Import({FilmDbStorage.class, DirectorDbStorage.class, FilmRowMapper.class, LikeIndex.class, FilmHydrator.class, FilmSearchIndex.class,
+        ReferenceDataCache.class})
 public class FilmTest {
 
     private final FilmDbStorage filmDbStorage;
@@ -57,7 +67,10 @@ public class FilmTest {
         filmsList.forEach(film -> assertEquals(Set.of(director), film.getDirectors()));
     }
 
+    // Поисковый индекс узнаёт о фильмах только после фиксации, поэтому тест идёт без общей транзакции
+    // и сам удаляет созданные фильмы
     @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void getSearchTest() {
         Director director = createDirector("Search Director");
 
@@ -65,24 +78,91 @@ public class FilmTest {
         Film film2 = createFilm("FilmName2", "Description 2", LocalDate.of(2019, 12, 15), new HashSet<>());
         Film film3 = createFilm("FilmName3Dir", "Description 3", LocalDate.of(2022, 12, 15), new HashSet<>());
 
-        // Сохраняем фильмы
-        filmDbStorage.create(film1);
-        filmDbStorage.create(film2);
-        filmDbStorage.create(film3);
+        try {
+            // Сохраняем фильмы
+            filmDbStorage.create(film1);
+            filmDbStorage.create(film2);
+            filmDbStorage.create(film3);
+
+            // Поиск по режиссеру
+            List<Film> filmsDirList = filmDbStorage.getSearch("Search", "director", false, null, Integer.MAX_VALUE);
+            assertEquals(1, filmsDirList.size());
+            assertEquals("FilmName1", filmsDirList.get(0).getName());
+
+            // Поиск по названию
+            List<Film> filmsTitleList = filmDbStorage.getSearch("Name2", "title", false, null, Integer.MAX_VALUE);
+            assertEquals(1, filmsTitleList.size());
+            assertEquals("FilmName2", filmsTitleList.get(0).getName());
+
+            // Поиск по названию и режиссеру
+            List<Film> filmsAllList = filmDbStorage.getSearch("diR", "title,director", false, null, Integer.MAX_VALUE);
+            assertEquals(2, filmsAllList.size());
+        } finally {
+            for (Film film : List.of(film1, film2, film3)) {
+                if (film.getId() != null) {
+                    filmDbStorage.deleteFilmById(film.getId());
+                }
+            }
+            directorDbStorage.delete(director.getId());
+        }
+    }
 
-        // Поиск по режиссеру
-        List<Film> filmsDirList = filmDbStorage.getSearch("Search", "director");
-        assertEquals(1, filmsDirList.size());
-        assertEquals("FilmName1", filmsDirList.get(0).getName());
+    @Test
+    public void searchIndexIgnoresUncommittedFilm() {
+        filmDbStorage.create(createFilm("Uncommitted", "Description", LocalDate.of(2020, 1, 1), Set.of()));
 
-        // Поиск по названию
-        List<Film> filmsTitleList = filmDbStorage.getSearch("Name2", "title");
-        assertEquals(1, filmsTitleList.size());
-        assertEquals("FilmName2", filmsTitleList.get(0).getName());
+        // Транзакция теста ещё не зафиксирована и будет откатана
+        assertEquals(0, filmDbStorage.getSearch("Uncommitted", "title", false, null, Integer.MAX_VALUE).size());
+    }
 
-        // Поиск по названию и режиссеру
-        List<Film> filmsAllList = filmDbStorage.getSearch("diR", "title,director");
-        assertEquals(2, filmsAllList.size());
+    @Test
+    public void searchIndexIgnoresUncommittedBatch() {
+        filmDbStorage.createAll(new ArrayList<>(List.of(
+                createFilm("Uncommitted batch 1", "Description", LocalDate.of(2020, 1, 1), Set.of()),
+                createFilm("Uncommitted batch 2", "Description", LocalDate.of(2021, 1, 1), Set.of()))));
+
+        assertEquals(0, filmDbStorage.getSearch("batch", "title", false, null, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    public void streamAllTest() {
+        Director director = createDirector("Stream Director");
+        Film film1 = filmDbStorage.create(createFilm("Stream 1", "Description 1", LocalDate.of(2020, 1, 1), Set.of(director)));
+        Film film2 = filmDbStorage.create(createFilm("Stream 2", "Description 2", LocalDate.of(2021, 1, 1), Set.of()));
+
+        List<Film> streamed = new ArrayList<>();
+        filmDbStorage.streamAll(streamed::addAll);
+
+        // Порядок по id совпадает с порядком создания, связи догружены в каждой пачке
+        assertEquals(List.of(film1.getId(), film2.getId()), streamed.stream().map(Film::getId).toList());
+        assertEquals(Set.of(director), streamed.get(0).getDirectors());
+        assertEquals("G", streamed.get(1).getMpa().getName());
+    }
+
+    @Test
+    public void pagesTest() {
+        Director director = createDirector("Page Director");
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            ids.add(filmDbStorage.create(createFilm("Page " + i, "Description", LocalDate.of(2000, 1, 1), Set.of(director))).getId());
+        }
+
+        // Лайков у всех фильмов поровну: порядок задаёт id, курсор продолжает ровно с места остановки
+        List<Integer> paged = new ArrayList<>();
+        Page<Film> page = filmDbStorage.getDirectorSortPage(director.getId(), "likes", null, 2);
+        paged.addAll(page.getItems().stream().map(Film::getId).toList());
+        while (page.getNextCursor() != null) {
+            page = filmDbStorage.getDirectorSortPage(director.getId(), "likes", page.getNextCursor(), 2);
+            paged.addAll(page.getItems().stream().map(Film::getId).toList());
+        }
+        assertEquals(ids, paged);
+
+        Page<Film> first = filmDbStorage.findPage(null, 3);
+        Page<Film> second = filmDbStorage.findPage(first.getNextCursor(), 3);
+        assertEquals(ids.subList(0, 3), first.getItems().stream().map(Film::getId).toList());
+        assertEquals(ids.subList(3, 5), second.getItems().stream().map(Film::getId).toList());
+        assertNull(second.getNextCursor());
+        assertEquals(Set.of(director), second.getItems().get(0).getDirectors());
     }
 
     private Director createDirector(String name) {
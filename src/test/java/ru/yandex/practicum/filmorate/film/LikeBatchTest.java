@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.MPARating;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Отдельная база в памяти: общий контекст остальных тестов рассчитывает на свою нумерацию фильмов
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:likebatch", "filmorate.likes.batch.chunk-size=2"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class LikeBatchTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    @Qualifier("filmDbStorage")
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private LikeStorage likeStorage;
+
+    @Autowired
+    private LikeIndex likeIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private int userId;
+    private int filmId;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.update("DELETE FROM film_likes");
+        jdbc.update("DELETE FROM user_feed");
+        jdbc.update("MERGE INTO users (email, login, name, birthday) KEY (login) " +
+                "VALUES ('batch@mail.ru', 'batch', 'Batch', '1990-01-01')");
+        userId = jdbc.queryForObject("SELECT id FROM users WHERE login = 'batch'", Integer.class);
+        Film film = new Film();
+        film.setName("Batch");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new MPARating(1, null));
+        filmId = filmStorage.create(film).getId();
+    }
+
+    @Test
+    void ndjsonBatchAppliesChangesInOrderAndReportsFailures() throws Exception {
+        String body = String.join("\n",
+                op(userId, filmId, "ADD"),
+                op(userId, filmId, "ADD"),
+                op(userId, filmId + 1000, "ADD"),
+                "{\"userId\": \"x\", \"filmId\": 1, \"op\": \"ADD\"}",
+                op(userId, filmId, "REMOVE"),
+                op(userId, filmId, "add"));
+
+        mockMvc.perform(post("/films/likes:batch").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(6))
+                .andExpect(jsonPath("$.applied").value(3))
+                .andExpect(jsonPath("$.unchanged").value(1))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.completed").value(true))
+                .andExpect(jsonPath("$.failures.length()").value(2))
+                .andExpect(jsonPath("$.failures[0].item").value(2))
+                .andExpect(jsonPath("$.failures[1].item").value(3));
+
+        assertEquals(1, count("SELECT COUNT(*) FROM film_likes WHERE film_id = ?"));
+        assertEquals(1, count("SELECT likes_count FROM films WHERE id = ?"));
+        // Событие ленты только на каждое фактическое изменение
+        assertEquals(3, count("SELECT COUNT(*) FROM user_feed WHERE entity_id = ? AND event_type = 'LIKE'"));
+    }
+
+    @Test
+    void jsonArrayIsAcceptedAndBrokenStreamKeepsWrittenChunks() throws Exception {
+        String body = "[" + op(userId, filmId, "ADD") + ", " + op(userId, filmId, "REMOVE") + ", {\"userId\": ";
+
+        mockMvc.perform(post("/films/likes:batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.applied").value(2))
+                .andExpect(jsonPath("$.completed").value(false));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM film_likes WHERE film_id = ?"));
+        assertEquals(2, count("SELECT COUNT(*) FROM user_feed WHERE entity_id = ? AND event_type = 'LIKE'"));
+    }
+
+    @Test
+    void indexFollowsOnlyCommittedBatches() {
+        List<LikeOperation> batch = List.of(new LikeOperation(userId, filmId, LikeOperation.ADD));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            likeStorage.applyBatch(batch, 1_000);
+            status.setRollbackOnly();
+        });
+        assertFalse(likeIndex.hasLike(userId, filmId));
+        assertEquals(0, count("SELECT COUNT(*) FROM film_likes WHERE film_id = ?"));
+
+        likeStorage.applyBatch(batch, 1_000);
+        assertTrue(likeIndex.hasLike(userId, filmId));
+    }
+
+    private int count(String sql) {
+        return jdbc.queryForObject(sql, Integer.class, filmId);
+    }
+
+    private static String op(int userId, int filmId, String op) {
+        return "{\"userId\": " + userId + ", \"filmId\": " + filmId + ", \"op\": \"" + op + "\"}";
+    }
+}
@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Отдельная база в памяти: общий контекст остальных тестов рассчитывает на свою нумерацию фильмов
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:likeconcurrency")
+@ActiveProfiles("test")
+class LikeConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private LikeStorage likeStorage;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private LikeIndex likeIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private int userId;
+    private int filmId;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.update("DELETE FROM film_likes");
+        jdbc.update("MERGE INTO users (email, login, name, birthday) KEY (login) " +
+                "VALUES ('race@mail.ru', 'race', 'Race', '1990-01-01')");
+        userId = jdbc.queryForObject("SELECT id FROM users WHERE login = 'race'", Integer.class);
+        jdbc.update("INSERT INTO films (name, description, release_date, duration) " +
+                "VALUES ('Race', 'Описание', '2000-01-01', 100)");
+        filmId = jdbc.queryForObject("SELECT MAX(id) FROM films", Integer.class);
+    }
+
+    @Test
+    void concurrentLikesAndUnlikesChangeStateExactlyOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                // Из всех одновременных попыток изменение фиксирует ровно одна
+                assertEquals(1, changed(executor, () -> likeStorage.addLike(userId, filmId)));
+                assertEquals(1, likes());
+                assertEquals(1, likesCount());
+                assertTrue(likeIndex.hasLike(userId, filmId));
+
+                assertEquals(1, changed(executor, () -> likeStorage.removeLike(userId, filmId)));
+                assertEquals(0, likes());
+                assertEquals(0, likesCount());
+                assertFalse(likeIndex.hasLike(userId, filmId));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void indexChangesOnlyAfterCommit() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            assertTrue(likeStorage.addLike(userId, filmId));
+            // До фиксации лайк есть только в базе
+            assertFalse(likeIndex.hasLike(userId, filmId));
+            status.setRollbackOnly();
+        });
+        assertFalse(likeIndex.hasLike(userId, filmId));
+        assertEquals(0, likes());
+
+        assertTrue(likeStorage.addLike(userId, filmId));
+        assertTrue(likeIndex.hasLike(userId, filmId));
+        assertTrue(likeStorage.removeLike(userId, filmId));
+        assertFalse(likeIndex.hasLike(userId, filmId));
+    }
+
+    // Первая транзакция зафиксирована, но её колбэк выполняется уже после того, как вторая транзакция
+    // сняла лайк и обновила индекс: индекс всё равно должен совпасть с базой
+    @Test
+    void lateCallbackOfEarlierCommitDoesNotOverrideIndex() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+        concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.executeWithoutResult(status -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    concurrent.executeWithoutResult(inner -> assertTrue(likeStorage.removeLike(userId, filmId)));
+                }
+            });
+            assertTrue(likeStorage.addLike(userId, filmId));
+        });
+
+        assertEquals(0, likes());
+        assertFalse(likeIndex.hasLike(userId, filmId));
+    }
+
+    private int changed(ExecutorService executor, Callable<Boolean> attempt) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return attempt.call();
+            }));
+        }
+        start.countDown();
+        int changed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private int likes() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM film_likes WHERE user_id = ? AND film_id = ?", Integer.class,
+                userId, filmId);
+    }
+
+    private int likesCount() {
+        return jdbc.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId);
+    }
+}
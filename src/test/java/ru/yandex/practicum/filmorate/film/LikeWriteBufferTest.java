@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.film;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dao.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.model.UserFeedEvent;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JdbcTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class LikeWriteBufferTest {
+    // Сброс по таймеру и по размеру в тестах не срабатывает: буфер сбрасывается явно
+    private static final long NEVER = 3_600_000;
+    private static final int HUGE = 1_000_000;
+
+    private final JdbcTemplate jdbc;
+    private final PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path journalDir;
+
+    private LikeIndex likeIndex;
+    private int userId;
+    private int filmId;
+
+    @BeforeEach
+    public void setUp() {
+        likeIndex = new LikeIndex(jdbc, event -> { });
+        jdbc.update("INSERT INTO users (email, login, name, birthday) VALUES ('buffer@mail.ru', 'buffer', 'Buffer', '1990-01-01')");
+        userId = jdbc.queryForObject("SELECT id FROM users WHERE login = 'buffer'", Integer.class);
+        jdbc.update("INSERT INTO films (name, description, release_date, duration) VALUES ('Buffered', 'Описание', '2000-01-01', 100)");
+        filmId = jdbc.queryForObject("SELECT MAX(id) FROM films", Integer.class);
+    }
+
+    @Test
+    public void flushWritesLikesCountersAndFeedInOneBatch() {
+        LikeWriteBuffer buffer = buffer(true);
+
+        assertTrue(buffer.addLike(userId, filmId, 100));
+        assertFalse(buffer.addLike(userId, filmId, 200));
+        buffer.addEvent(new UserFeedEvent(0, userId, "LIKE", "ADD", filmId, 100_000));
+        // До сброса лайк виден только в резидентном индексе
+        assertTrue(likeIndex.hasLike(userId, filmId));
+        assertEquals(0, likes());
+
+        buffer.flush();
+        assertEquals(1, likes());
+        assertEquals(1, likesCount());
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM user_feed WHERE user_id = ?", Integer.class, userId).intValue());
+
+        // Поставленный и снятый до сброса лайк схлопывается в одно снятие
+        assertTrue(buffer.removeLike(userId, filmId));
+        assertTrue(buffer.addLike(userId, filmId, 300));
+        assertTrue(buffer.removeLike(userId, filmId));
+        buffer.flush();
+        assertEquals(0, likes());
+        assertEquals(0, likesCount());
+    }
+
+    @Test
+    public void unflushedLikesAreReplayedFromJournal() {
+        LikeWriteBuffer crashed = buffer(false);
+        crashed.start();
+        crashed.addLike(userId, filmId, 100);
+        assertEquals(0, likes());
+
+        // Новый экземпляр на том же каталоге журнала: как после падения процесса без сброса
+        likeIndex = new LikeIndex(jdbc, event -> { });
+        LikeWriteBuffer restarted = buffer(false);
+        restarted.start();
+        assertEquals(1, likes());
+        assertEquals(1, likesCount());
+        assertTrue(likeIndex.hasLike(userId, filmId));
+        restarted.stop();
+    }
+
+    @Test
+    public void replayOfAlreadyWrittenLikeDoesNotShiftCounter() throws Exception {
+        LikeWriteBuffer buffer = buffer(true);
+        buffer.addLike(userId, filmId, 100);
+        buffer.flush();
+        assertEquals(1, likesCount());
+
+        // Сегмент, который не успели удалить после успешного сброса, проигрывается повторно
+        Files.writeString(journalDir.resolve("segment-1.log"), "L\t" + userId + "\t" + filmId + "\t1\t100\n");
+        likeIndex = new LikeIndex(jdbc, event -> { });
+        LikeWriteBuffer restarted = buffer(false);
+        restarted.start();
+        assertEquals(1, likes());
+        assertEquals(1, likesCount());
+        restarted.stop();
+    }
+
+    // Без транзакции теста: сброс должен откатить свою пачку целиком, как в работающем приложении
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void likeRejectedByDatabaseIsRemovedFromIndex() {
+        LikeWriteBuffer buffer = buffer(true);
+        int missingUserId = userId + 1000;
+        try {
+            assertTrue(buffer.addLike(missingUserId, filmId, 100));
+            assertTrue(buffer.addLike(userId, filmId, 100));
+            buffer.flush();
+
+            assertFalse(likeIndex.hasLike(missingUserId, filmId));
+            assertTrue(likeIndex.hasLike(userId, filmId));
+            assertEquals(1, likes());
+            assertEquals(1, likesCount());
+        } finally {
+            jdbc.update("DELETE FROM film_likes WHERE film_id = ?", filmId);
+            jdbc.update("DELETE FROM films WHERE id = ?", filmId);
+            jdbc.update("DELETE FROM users WHERE id = ?", userId);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void feedEventOfRejectedLikeIsDropped() {
+        LikeWriteBuffer buffer = buffer(true);
+        // Фильм удалён между приёмом лайка и сбросом буфера
+        int missingFilmId = filmId + 1000;
+        try {
+            buffer.addLike(userId, missingFilmId, 100);
+            buffer.addEvent(new UserFeedEvent(0, userId, "LIKE", "ADD", missingFilmId, 100_000));
+            buffer.addLike(userId, filmId, 100);
+            buffer.addEvent(new UserFeedEvent(0, userId, "LIKE", "ADD", filmId, 100_000));
+            buffer.flush();
+
+            assertEquals(List.of(filmId), jdbc.queryForList("SELECT entity_id FROM user_feed WHERE user_id = ?",
+                    Integer.class, userId));
+        } finally {
+            jdbc.update("DELETE FROM user_feed WHERE user_id = ?", userId);
+            jdbc.update("DELETE FROM film_likes WHERE film_id = ?", filmId);
+            jdbc.update("DELETE FROM films WHERE id = ?", filmId);
+            jdbc.update("DELETE FROM users WHERE id = ?", userId);
+        }
+    }
+
+    private LikeWriteBuffer buffer(boolean atMostOnce) {
+        return new LikeWriteBuffer(jdbc, transactionManager, likeIndex, true, NEVER, HUGE, atMostOnce, journalDir.toString());
+    }
+
+    private int likesCount() {
+        return jdbc.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId);
+    }
+
+    private int likes() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM film_likes WHERE user_id = ? AND film_id = ?", Integer.class,
+                userId, filmId);
+    }
+}
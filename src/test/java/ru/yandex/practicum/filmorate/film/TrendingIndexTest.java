@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.index.TrendingIndex;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TrendingIndexTest {
+    private static final long HOUR = 3600;
+
+    private LikeIndex likeIndex;
+    private TrendingIndex trending;
+    private long now;
+
+    @BeforeEach
+    public void setUp() {
+        likeIndex = new LikeIndex(null, event -> trending.onLikeChanged((LikeChangedEvent) event));
+        trending = new TrendingIndex(null, likeIndex, 24);
+        now = Instant.now().getEpochSecond();
+    }
+
+    @Test
+    public void recentLikesOutweighOldOnes() {
+        // Три лайка двухнедельной давности весят меньше двух свежих
+        for (int userId = 1; userId <= 3; userId++) {
+            likeIndex.addLike(userId, 1, now - 14 * 24 * HOUR);
+        }
+        likeIndex.addLike(1, 2, now - HOUR);
+        likeIndex.addLike(2, 2, now - HOUR);
+        likeIndex.addLike(1, 3, now - 2 * 24 * HOUR);
+
+        assertEquals(List.of(2, 3, 1), trending.getTop(10));
+    }
+
+    @Test
+    public void removingDominantLikeKeepsTheRest() {
+        likeIndex.addLike(1, 1, now);
+        likeIndex.addLike(2, 1, now - 30 * 24 * HOUR);
+        likeIndex.addLike(1, 2, now - 20 * 24 * HOUR);
+
+        // После снятия свежего лайка у фильма 1 остаётся только лайк месячной давности
+        likeIndex.removeLike(1, 1);
+        assertEquals(List.of(2, 1), trending.getTop(10));
+
+        likeIndex.removeLike(2, 1);
+        assertEquals(List.of(2), trending.getTop(10));
+    }
+
+    @Test
+    public void rescaleKeepsOrder() {
+        likeIndex.addLike(1, 1, now - 5 * HOUR);
+        likeIndex.addLike(1, 2, now - HOUR);
+        likeIndex.addLike(2, 3, now - 3 * HOUR);
+        assertEquals(List.of(2, 3, 1), trending.getTop(10));
+
+        trending.rescale();
+        assertEquals(List.of(2, 3, 1), trending.getTop(10));
+
+        likeIndex.addLike(3, 1, now - 4 * HOUR);
+        assertEquals(List.of(1, 2, 3), trending.getTop(10));
+    }
+}
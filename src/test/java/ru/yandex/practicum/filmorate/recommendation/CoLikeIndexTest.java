@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.CoLikeIndex;
+import ru.yandex.practicum.filmorate.index.FilmChangedEvent;
+import ru.yandex.practicum.filmorate.index.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CoLikeIndexTest {
+    private static final int USERS = 300;
+    private static final int FILMS = 60;
+
+    private final Random random = new Random(2024);
+    private LikeIndex likeIndex;
+    private CoLikeIndex coLikeIndex;
+
+    // Список соседей вмещает весь каталог, поэтому результат должен совпасть с полным перебором
+    @BeforeEach
+    public void generate() {
+        CoLikeIndex[] listener = new CoLikeIndex[1];
+        likeIndex = new LikeIndex(null, event -> {
+            if (listener[0] != null) {
+                listener[0].onLikeChanged((LikeChangedEvent) event);
+            }
+        });
+        for (int userId = 1; userId <= USERS; userId++) {
+            for (int i = 0; i < 8; i++) {
+                likeIndex.addLike(userId, 1 + random.nextInt(FILMS));
+            }
+        }
+        coLikeIndex = new CoLikeIndex(likeIndex, true, FILMS);
+        coLikeIndex.rebuild();
+        listener[0] = coLikeIndex;
+    }
+
+    @Test
+    public void testRebuildMatchesBruteForceCosine() {
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchBruteForceCosine() {
+        for (int i = 0; i < 3_000; i++) {
+            int userId = 1 + random.nextInt(USERS);
+            int filmId = 1 + random.nextInt(FILMS);
+            if (likeIndex.hasLike(userId, filmId)) {
+                likeIndex.removeLike(userId, filmId);
+            } else {
+                likeIndex.addLike(userId, filmId);
+            }
+        }
+        coLikeIndex.refreshChanged();
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    public void testRemovedFilmLeavesNoNeighbours() {
+        likeIndex.removeFilm(1);
+        coLikeIndex.onFilmChanged(new FilmChangedEvent(1, null));
+
+        assertEquals(0, coLikeIndex.getNeighbours(1).filmIds().length);
+        for (int filmId = 2; filmId <= FILMS; filmId++) {
+            assertEquals(-1, indexOf(coLikeIndex.getNeighbours(filmId).filmIds(), 1), "Сосед фильма " + filmId);
+        }
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    public void testDisabledIndexKeepsNoState() {
+        CoLikeIndex disabled = new CoLikeIndex(likeIndex, false, FILMS);
+        disabled.rebuild();
+        disabled.onLikeChanged(new LikeChangedEvent(1, 1, true, 0, likeIndex.getFilms(1)));
+        disabled.refreshChanged();
+
+        for (int filmId = 1; filmId <= FILMS; filmId++) {
+            assertEquals(0, disabled.getNeighbours(filmId).filmIds().length);
+        }
+    }
+
+    private void assertMatchesBruteForce() {
+        for (int userId = 1; userId <= USERS; userId += 7) {
+            Map<Integer, Double> expected = bruteForce(userId);
+            List<Integer> actual = coLikeIndex.recommend(userId, FILMS);
+
+            assertEquals(expected.keySet(), new HashSet<>(actual), "Кандидаты пользователя " + userId);
+            for (int i = 1; i < actual.size(); i++) {
+                assertTrue(expected.get(actual.get(i - 1)) >= expected.get(actual.get(i)) - 1e-9,
+                        "Порядок рекомендаций пользователя " + userId);
+            }
+        }
+    }
+
+    // Сумма косинусов |U(f) ∩ U(c)| / sqrt(|U(f)| * |U(c)|) по фильмам f пользователя
+    private Map<Integer, Double> bruteForce(int userId) {
+        int[] liked = likeIndex.getFilms(userId);
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int likedFilmId : liked) {
+            for (int filmId = 1; filmId <= FILMS; filmId++) {
+                if (indexOf(liked, filmId) >= 0) {
+                    continue;
+                }
+                int common = 0;
+                for (int otherUserId : likeIndex.getUsers(likedFilmId)) {
+                    if (likeIndex.hasLike(otherUserId, filmId)) {
+                        common++;
+                    }
+                }
+                if (common > 0) {
+                    double score = common / Math.sqrt((double) likeIndex.getLikesCount(likedFilmId)
+                            * likeIndex.getLikesCount(filmId));
+                    scores.merge(filmId, score, Double::sum);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.index.LikeIndex;
+import ru.yandex.practicum.filmorate.index.MinHashIndex;
+import ru.yandex.practicum.filmorate.index.RecommendationScorer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MinHashIndexTest {
+    private static final int USERS = 2_000;
+    private static final int GROUPS = 20;
+    private static final int FILMS_PER_GROUP = 40;
+
+    private final List<LikeChangedEvent> events = new ArrayList<>();
+    private LikeIndex likeIndex;
+    private MinHashIndex lsh;
+
+    // Пользователи разбиты на группы со схожими вкусами: большинство лайков внутри фильмов своей группы,
+    // остальные - случайные фильмы всего каталога
+    @BeforeEach
+    public void generate() {
+        likeIndex = new LikeIndex(null, event -> events.add((LikeChangedEvent) event));
+        Random random = new Random(2024);
+        for (int userId = 1; userId <= USERS; userId++) {
+            int group = userId % GROUPS;
+            for (int i = 0; i < 12; i++) {
+                likeIndex.addLike(userId, 1 + group * FILMS_PER_GROUP + random.nextInt(FILMS_PER_GROUP));
+            }
+            for (int i = 0; i < 3; i++) {
+                likeIndex.addLike(userId, 1 + random.nextInt(GROUPS * FILMS_PER_GROUP));
+            }
+        }
+        lsh = new MinHashIndex(likeIndex, true, 16, 1);
+        lsh.rebuild();
+        events.clear();
+    }
+
+    @Test
+    public void testLshRecommendationsCloseToExact() {
+        RecommendationScorer exact = new RecommendationScorer(likeIndex, new MinHashIndex(likeIndex, false, 0, 0),
+                RecommendationScorer.Similarity.JACCARD, 20, false, 0, 1);
+        RecommendationScorer approximate = new RecommendationScorer(likeIndex, lsh,
+                RecommendationScorer.Similarity.JACCARD, 20, false, 0, 1);
+
+        int matched = 0;
+        int total = 0;
+        int candidates = 0;
+        for (int userId = 1; userId <= USERS; userId += 10) {
+            Set<Integer> expected = new HashSet<>(exact.recommend(userId, 10));
+            for (Integer filmId : approximate.recommend(userId, 10)) {
+                if (expected.contains(filmId)) {
+                    matched++;
+                }
+            }
+            total += expected.size();
+            candidates += lsh.getCandidates(userId).size();
+        }
+
+        double recall = (double) matched / total;
+        double candidateShare = (double) candidates / (USERS / 10) / USERS;
+        assertTrue(recall >= 0.9, "Полнота LSH относительно точного поиска: " + recall);
+        assertTrue(candidateShare < 0.2, "Доля пользователей-кандидатов: " + candidateShare);
+    }
+
+    @Test
+    public void testMoreRowsPerBandGiveFewerCandidates() {
+        MinHashIndex strict = new MinHashIndex(likeIndex, true, 16, 3);
+        strict.rebuild();
+
+        int candidates = 0;
+        int strictCandidates = 0;
+        for (int userId = 1; userId <= USERS; userId += 10) {
+            candidates += lsh.getCandidates(userId).size();
+            strictCandidates += strict.getCandidates(userId).size();
+        }
+        assertTrue(strictCandidates < candidates, strictCandidates + " >= " + candidates);
+    }
+
+    @Test
+    public void testIndexFollowsLikeChanges() {
+        int userId = USERS + 1;
+        int[] films = likeIndex.getFilms(1);
+        for (int filmId : films) {
+            likeIndex.addLike(userId, filmId);
+        }
+        events.forEach(lsh::onLikeChanged);
+        events.clear();
+        assertTrue(lsh.getCandidates(userId).contains(1), "Пользователь с теми же лайками должен быть кандидатом");
+
+        for (int filmId : films) {
+            likeIndex.removeLike(userId, filmId);
+        }
+        events.forEach(lsh::onLikeChanged);
+        assertTrue(lsh.getCandidates(userId).isEmpty(), "Пользователь без лайков не попадает в корзины");
+        assertFalse(lsh.getCandidates(1).contains(userId));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.LikeChangedEvent;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.service.RecommendationCache;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class RecommendationCacheTest {
+
+    @Test
+    public void testHitAndMissAreCounted() {
+        RecommendationCache cache = new RecommendationCache(10, 300);
+        assertNull(cache.get(1, 10));
+        cache.put(1, 10, List.of(5, 6), List.of(2), cache.version());
+
+        assertEquals(List.of(5, 6), cache.get(1, 10));
+        assertNull(cache.get(1, 20));
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+    }
+
+    @Test
+    public void testExpiredEntryIsMiss() throws InterruptedException {
+        RecommendationCache cache = new RecommendationCache(10, 0);
+        cache.put(1, 10, List.of(5), List.of(), cache.version());
+        Thread.sleep(5);
+
+        assertNull(cache.get(1, 10));
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        RecommendationCache cache = new RecommendationCache(2, 300);
+        cache.put(1, 10, List.of(5), List.of(), cache.version());
+        cache.put(2, 10, List.of(6), List.of(), cache.version());
+        cache.get(1, 10);
+        cache.put(3, 10, List.of(7), List.of(), cache.version());
+
+        assertEquals(List.of(5), cache.get(1, 10));
+        assertNull(cache.get(2, 10));
+        assertEquals(List.of(7), cache.get(3, 10));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void testLikeOfUserOrNeighbourInvalidatesOnlyDependentEntries() {
+        RecommendationCache cache = new RecommendationCache(10, 300);
+        cache.put(1, 10, List.of(5), List.of(2), cache.version());
+        cache.put(3, 10, List.of(6), List.of(4), cache.version());
+
+        cache.onLikeChanged(like(2));
+        assertNull(cache.get(1, 10));
+        assertEquals(List.of(6), cache.get(3, 10));
+
+        cache.onLikeChanged(like(3));
+        assertNull(cache.get(3, 10));
+        assertEquals(2, cache.getStats().getInvalidations());
+    }
+
+    @Test
+    public void testResultIsDroppedOnlyWhenDependencyChangedDuringComputation() {
+        RecommendationCache cache = new RecommendationCache(10, 300);
+
+        long version = cache.version();
+        cache.onLikeChanged(like(9));
+        cache.put(1, 10, List.of(5), List.of(2), version);
+        assertEquals(List.of(5), cache.get(1, 10));
+
+        version = cache.version();
+        cache.onLikeChanged(like(4));
+        cache.put(3, 10, List.of(6), List.of(4), version);
+        assertNull(cache.get(3, 10));
+    }
+
+    private static LikeChangedEvent like(int userId) {
+        return new LikeChangedEvent(userId, 100, true, 0, new int[]{100});
+    }
+}